@@ -0,0 +1,90 @@
+package com.chengzhx.distributionLocker.benchmark;
+
+import com.chengzhx.distributionLocker.aspect.RedissonLockAnnotation;
+import com.chengzhx.distributionLocker.aspect.RedissonLockAop;
+import com.chengzhx.distributionLocker.metrics.LockMetrics;
+import com.chengzhx.distributionLocker.monitor.LockMonitor;
+import com.chengzhx.distributionLocker.renewal.LeaseRenewalService;
+import com.chengzhx.distributionLocker.service.ReactiveDistributeLocker;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.trace.LockEventTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 注解切面相对直接调用锁后端的额外开销
+ *
+ * @author ChengZhenxing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AspectOverheadBenchmark {
+
+    private static final int KEY_SPACE = 10_000;
+
+    /**
+     * 被切面代理的业务对象
+     */
+    public static class LockedService {
+
+        @RedissonLockAnnotation(lockName = "bench", key = "#p0")
+        public int work(int id) {
+            return id;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ProxyState {
+
+        LockedService proxy;
+
+        @Setup
+        public void setUp(BackendState backendState) {
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            RedissonLockAop aop = new RedissonLockAop(() -> 1, backendState.lockBackend,
+                    beanFactory.getBeanProvider(ReactiveDistributeLocker.class), beanFactory.getBeanProvider(LockMetrics.class),
+                    beanFactory.getBeanProvider(LockEventTracer.class),
+                    beanFactory.getBeanProvider(LockMonitor.class),
+                    beanFactory.getBeanProvider(LeaseRenewalService.class));
+            AspectJProxyFactory factory = new AspectJProxyFactory(new LockedService());
+            factory.setProxyTargetClass(true);
+            factory.addAspect(aop);
+            proxy = factory.getProxy();
+        }
+    }
+
+    @Benchmark
+    public int direct(BackendState state) {
+        int id = ThreadLocalRandom.current().nextInt(KEY_SPACE);
+        LockHandle handle = state.lockBackend.tryAcquire("DistributedLock:bench:" + id, TimeUnit.SECONDS, 10, 30);
+        if (handle == null) {
+            return -1;
+        }
+        try {
+            return id;
+        } finally {
+            state.lockBackend.release(handle);
+        }
+    }
+
+    @Benchmark
+    public int aspect(ProxyState state) {
+        return state.proxy.work(ThreadLocalRandom.current().nextInt(KEY_SPACE));
+    }
+}
@@ -0,0 +1,56 @@
+package com.chengzhx.distributionLocker.benchmark;
+
+import com.chengzhx.distributionLocker.service.impl.RedissonDistributeLocker;
+import com.chengzhx.distributionLocker.spi.LockBackend;
+import com.chengzhx.distributionLocker.spi.impl.InMemoryLockBackend;
+import com.chengzhx.distributionLocker.spi.impl.RedissonLockBackend;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+/**
+ * Description: 压测使用的锁后端
+ * <p>
+ * 默认使用进程内的内存后端；指定 -p backend=redisson 时连接 -Dredisson.address 指向的Redis
+ * （默认 redis://127.0.0.1:6379），可以是本地的Redis或者任意兼容的替代实现
+ *
+ * @author ChengZhenxing
+ */
+@State(Scope.Benchmark)
+public class BackendState {
+
+    @Param({"memory"})
+    public String backend;
+
+    LockBackend lockBackend;
+
+    private RedissonClient redissonClient;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("redisson".equals(backend)) {
+            Config config = new Config();
+            config.useSingleServer().setAddress(System.getProperty("redisson.address", "redis://127.0.0.1:6379"));
+            redissonClient = Redisson.create(config);
+            lockBackend = new RedissonLockBackend(new RedissonDistributeLocker(redissonClient));
+        } else {
+            lockBackend = new InMemoryLockBackend();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (lockBackend instanceof InMemoryLockBackend) {
+            ((InMemoryLockBackend) lockBackend).close();
+        }
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+        }
+    }
+}
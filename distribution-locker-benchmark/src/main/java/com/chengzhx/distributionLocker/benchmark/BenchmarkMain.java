@@ -0,0 +1,29 @@
+package com.chengzhx.distributionLocker.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Description: 依次用不同的线程数运行压测
+ * <p>
+ * java -Dbenchmark.threads=1,16,256 -jar target/benchmarks.jar [正则]
+ * 需要JMH的完整命令行参数时直接使用 java -cp target/benchmarks.jar org.openjdk.jmh.Main
+ *
+ * @author ChengZhenxing
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com.chengzhx.distributionLocker.benchmark.*";
+        String backend = System.getProperty("benchmark.backend", "memory");
+        for (String threads : System.getProperty("benchmark.threads", "1,4,16,64,256").split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .param("backend", backend)
+                    .threads(Integer.parseInt(threads.trim()));
+            new Runner(options.build()).run();
+        }
+    }
+}
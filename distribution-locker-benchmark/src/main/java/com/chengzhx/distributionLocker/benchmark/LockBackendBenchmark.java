@@ -0,0 +1,92 @@
+package com.chengzhx.distributionLocker.benchmark;
+
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: 锁后端获取、释放的吞吐量
+ * <p>
+ * 线程数通过 BenchmarkMain 的 -Dbenchmark.threads 或者JMH的 -t 参数控制
+ *
+ * @author ChengZhenxing
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockBackendBenchmark {
+
+    private static final long WAIT_SECONDS = 10;
+
+    private static final long LEASE_SECONDS = 30;
+
+    private static final int KEY_SPACE = 10_000;
+
+    private static final int MULTI_KEY_COUNT = 10;
+
+    private static final AtomicInteger THREAD_SEQUENCE = new AtomicInteger();
+
+    /**
+     * 每个线程独占的key，用于无竞争场景
+     */
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+
+        String ownKey;
+
+        List<String> ownKeys;
+
+        @Setup
+        public void setUp() {
+            String prefix = "bench:" + UUID.randomUUID() + ":" + THREAD_SEQUENCE.incrementAndGet();
+            ownKey = prefix;
+            ownKeys = new ArrayList<>(MULTI_KEY_COUNT);
+            for (int i = 0; i < MULTI_KEY_COUNT; i++) {
+                ownKeys.add(prefix + ":" + i);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean uncontendedAcquireRelease(BackendState state, ThreadKeys keys) {
+        return acquireRelease(state, keys.ownKey);
+    }
+
+    @Benchmark
+    public boolean sameKeyAcquireRelease(BackendState state) {
+        return acquireRelease(state, "bench:hot");
+    }
+
+    @Benchmark
+    public boolean manyKeysAcquireRelease(BackendState state) {
+        return acquireRelease(state, "bench:key:" + ThreadLocalRandom.current().nextInt(KEY_SPACE));
+    }
+
+    @Benchmark
+    public boolean multiKeyAcquireRelease(BackendState state, ThreadKeys keys) {
+        LockHandle handle = state.lockBackend.tryAcquireAll(keys.ownKeys, TimeUnit.SECONDS, WAIT_SECONDS, LEASE_SECONDS);
+        return handle != null && state.lockBackend.release(handle);
+    }
+
+    private static boolean acquireRelease(BackendState state, String lockKey) {
+        LockHandle handle = state.lockBackend.tryAcquire(lockKey, TimeUnit.SECONDS, WAIT_SECONDS, LEASE_SECONDS);
+        return handle != null && state.lockBackend.release(handle);
+    }
+}
@@ -0,0 +1,64 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 集群范围的并发数限制，方法执行期间占用一个许可，返回后归还
+ * <p>
+ * 获取不到许可时抛出DistributionLockException，不支持返回Mono/Flux的方法
+ *
+ * @author ChengZhenxing
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DistributedConcurrencyLimit {
+
+    /**
+     * 限流的名称
+     * 如果不设置，默认为方法名
+     *
+     * @return 限流的名称
+     */
+    String name() default "";
+
+    /**
+     * 动态key的SpEL表达式，与 @RedissonLockAnnotation 的key相同
+     *
+     * @return key表达式
+     */
+    String key() default "";
+
+    /**
+     * 整个集群同时执行的最大数量
+     *
+     * @return 许可总数
+     */
+    int permits();
+
+    /**
+     * 等待时间 单位由timeUnit指定，默认不等待
+     *
+     * @return 等待时间
+     */
+    long waitTime() default 0;
+
+    /**
+     * 许可的过期时间 单位由timeUnit指定，默认30秒
+     * <p>
+     * 节点宕机时许可在过期后自动归还；方法执行时间超过过期时间时，许可会被提前归还
+     *
+     * @return 许可的过期时间
+     */
+    long leaseTime() default 30;
+
+    /**
+     * waitTime和leaseTime的时间单位 默认秒
+     *
+     * @return 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+}
@@ -0,0 +1,158 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.service.DistributeLimiter;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: 处理 @DistributedRateLimit 和 @DistributedConcurrencyLimit 的切面
+ *
+ * @author ChengZhenxing
+ */
+@Aspect
+@Component
+public class DistributedLimitAop {
+
+    /**
+     * 方法 -> 限流定义 缓存
+     */
+    private final Map<Method, DistributedLimitDefinition> rateLimitCache = new ConcurrentHashMap<>();
+
+    private final Map<Method, DistributedLimitDefinition> concurrencyLimitCache = new ConcurrentHashMap<>();
+
+    /**
+     * 最多缓存预取令牌的限流key数，超过后先清理空闲的key，仍然超过时新的key不再预取
+     */
+    private static final int MAX_LOCAL_BUDGETS = 4096;
+
+    /**
+     * 两次清理空闲key之间的最小间隔，单位纳秒
+     */
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 限流key -> 本节点预取的令牌，令牌用完或过期的key在超过上限时清理
+     */
+    private final Map<String, LocalTokenBudget> localBudgets = new ConcurrentHashMap<>();
+
+    /**
+     * 下一次允许清理的时间（System.nanoTime）
+     */
+    private final AtomicLong nextSweepAt = new AtomicLong(System.nanoTime());
+
+    private final ObjectProvider<DistributeLimiter> distributeLimiterProvider;
+
+    public DistributedLimitAop(ObjectProvider<DistributeLimiter> distributeLimiterProvider) {
+        this.distributeLimiterProvider = distributeLimiterProvider;
+    }
+
+    @Around("@annotation(com.chengzhx.distributionLocker.aspect.DistributedRateLimit)")
+    public Object rateLimit(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        DistributedLimitDefinition definition = rateLimitCache.computeIfAbsent(method, DistributedLimitDefinition::ofRateLimit);
+        String limitKey = definition.resolveKey(joinPoint.getTarget(), method, joinPoint.getArgs());
+        if (!tryAcquireToken(definition, limitKey)) {
+            throw new DistributionLockException("超过分布式限流：" + limitKey);
+        }
+        return joinPoint.proceed();
+    }
+
+    @Around("@annotation(com.chengzhx.distributionLocker.aspect.DistributedConcurrencyLimit)")
+    public Object concurrencyLimit(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        DistributedLimitDefinition definition = concurrencyLimitCache.computeIfAbsent(method, DistributedLimitDefinition::ofConcurrencyLimit);
+        String limitKey = definition.resolveKey(joinPoint.getTarget(), method, joinPoint.getArgs());
+        DistributeLimiter limiter = distributeLimiter();
+        String permitId = limiter.tryAcquirePermit(limitKey, (int) definition.getLimit(), definition.getLeaseMillis(),
+                definition.getWaitMillis());
+        if (permitId == null) {
+            throw new DistributionLockException("超过分布式并发数限制：" + limitKey);
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            limiter.releasePermit(limitKey, permitId);
+        }
+    }
+
+    /**
+     * 获取一个令牌，开启预取时优先使用本地令牌，本地令牌用完后由一个线程向Redis批量获取，
+     * 同时缺少令牌的其他线程只向Redis获取自己需要的一个，避免并发预取把其他节点需要的令牌拉到本地后作废
+     */
+    private boolean tryAcquireToken(DistributedLimitDefinition definition, String limitKey) {
+        int localBatch = definition.getLocalBatch();
+        if (localBatch <= 1) {
+            return acquireTokens(definition, limitKey, 1L) > 0;
+        }
+        long now = System.nanoTime();
+        LocalTokenBudget budget = localBudget(limitKey, now);
+        if (budget == null) {
+            return acquireTokens(definition, limitKey, 1L) > 0;
+        }
+        if (budget.tryTake(now)) {
+            return true;
+        }
+        if (!budget.startFetch()) {
+            return acquireTokens(definition, limitKey, 1L) > 0;
+        }
+        long granted = 0L;
+        try {
+            granted = acquireTokens(definition, limitKey, localBatch);
+        } finally {
+            budget.finishFetch(granted - 1, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(definition.getPeriodMillis()));
+        }
+        return granted > 0;
+    }
+
+    private long acquireTokens(DistributedLimitDefinition definition, String limitKey, long maxTokens) {
+        return distributeLimiter().tryAcquireTokens(limitKey, definition.getLimit(), definition.getPeriodMillis(),
+                definition.getCapacity(), 1L, maxTokens, definition.getWaitMillis());
+    }
+
+    /**
+     * 获取或创建限流key的本地令牌，缓存已满并且清理后仍然没有空位时返回null
+     */
+    private LocalTokenBudget localBudget(String limitKey, long now) {
+        LocalTokenBudget budget = localBudgets.get(limitKey);
+        if (budget != null) {
+            return budget;
+        }
+        if (localBudgets.size() >= MAX_LOCAL_BUDGETS) {
+            sweepIdleBudgets(now);
+            if (localBudgets.size() >= MAX_LOCAL_BUDGETS) {
+                return null;
+            }
+        }
+        return localBudgets.computeIfAbsent(limitKey, key -> new LocalTokenBudget());
+    }
+
+    /**
+     * 移除令牌已用完或已过期的key，同一时间只有一个线程清理，两次清理之间至少间隔SWEEP_INTERVAL_NANOS
+     */
+    private void sweepIdleBudgets(long now) {
+        long sweepAt = nextSweepAt.get();
+        if (now - sweepAt < 0 || !nextSweepAt.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        localBudgets.entrySet().removeIf(entry -> entry.getValue().retireIfIdle(now));
+    }
+
+    private DistributeLimiter distributeLimiter() {
+        DistributeLimiter distributeLimiter = distributeLimiterProvider.getIfAvailable();
+        if (distributeLimiter == null) {
+            throw new DistributionLockException("未配置分布式限流，无法使用限流注解");
+        }
+        return distributeLimiter;
+    }
+}
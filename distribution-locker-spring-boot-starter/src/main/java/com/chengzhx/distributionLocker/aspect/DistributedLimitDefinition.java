@@ -0,0 +1,144 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.expression.Expression;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 被 @DistributedRateLimit 或 @DistributedConcurrencyLimit 修饰的方法解析后的限流定义
+ * <p>
+ * 与锁定义一样，每个方法只解析一次注解并缓存
+ *
+ * @author ChengZhenxing
+ */
+@Getter
+final class DistributedLimitDefinition {
+
+    static final String RATE_LIMIT_KEY = "DistributedRateLimit:";
+
+    static final String CONCURRENCY_LIMIT_KEY = "DistributedConcurrencyLimit:";
+
+    /**
+     * 已拼接好前缀的key，例如 DistributedRateLimit:name
+     */
+    private final String keyPrefix;
+
+    /**
+     * 已解析的动态key表达式，未设置时为null
+     */
+    private final Expression keyExpression;
+
+    /**
+     * 速率限制为每个周期生成的令牌数，并发限制为许可总数
+     */
+    private final long limit;
+
+    /**
+     * 令牌桶的周期，单位毫秒
+     */
+    private final long periodMillis;
+
+    /**
+     * 令牌桶的容量
+     */
+    private final long capacity;
+
+    /**
+     * 本节点一次预取的令牌数，小于等于1时不预取
+     */
+    private final int localBatch;
+
+    /**
+     * 许可的过期时间，单位毫秒
+     */
+    private final long leaseMillis;
+
+    /**
+     * 等待时间，单位毫秒
+     */
+    private final long waitMillis;
+
+    private DistributedLimitDefinition(String keyPrefix, Expression keyExpression, long limit, long periodMillis, long capacity,
+                                       int localBatch, long leaseMillis, long waitMillis) {
+        this.keyPrefix = keyPrefix;
+        this.keyExpression = keyExpression;
+        this.limit = limit;
+        this.periodMillis = periodMillis;
+        this.capacity = capacity;
+        this.localBatch = localBatch;
+        this.leaseMillis = leaseMillis;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * 解析方法上的速率限制注解
+     *
+     * @param method 被拦截的方法
+     * @return 限流定义
+     */
+    static DistributedLimitDefinition ofRateLimit(Method method) {
+        DistributedRateLimit annotation = method.getAnnotation(DistributedRateLimit.class);
+        checkBlocking(method);
+        long periodMillis = annotation.timeUnit().toMillis(annotation.period());
+        if (annotation.rate() <= 0 || periodMillis <= 0) {
+            throw new DistributionLockException("限流的rate和period必须大于0：" + method);
+        }
+        long capacity = annotation.capacity() > 0 ? annotation.capacity() : annotation.rate();
+        return new DistributedLimitDefinition(RATE_LIMIT_KEY + name(annotation.name(), method), parseKey(annotation.key()),
+                annotation.rate(), periodMillis, capacity, annotation.localBatch(), 0L,
+                annotation.timeUnit().toMillis(annotation.waitTime()));
+    }
+
+    /**
+     * 解析方法上的并发限制注解
+     *
+     * @param method 被拦截的方法
+     * @return 限流定义
+     */
+    static DistributedLimitDefinition ofConcurrencyLimit(Method method) {
+        DistributedConcurrencyLimit annotation = method.getAnnotation(DistributedConcurrencyLimit.class);
+        checkBlocking(method);
+        if (annotation.permits() <= 0 || annotation.leaseTime() <= 0) {
+            throw new DistributionLockException("并发限制的permits和leaseTime必须大于0：" + method);
+        }
+        TimeUnit timeUnit = annotation.timeUnit();
+        return new DistributedLimitDefinition(CONCURRENCY_LIMIT_KEY + name(annotation.name(), method), parseKey(annotation.key()),
+                annotation.permits(), 0L, 0L, 0, timeUnit.toMillis(annotation.leaseTime()), timeUnit.toMillis(annotation.waitTime()));
+    }
+
+    private static void checkBlocking(Method method) {
+        if (RedissonLockDefinition.ResultType.of(method.getReturnType()) != RedissonLockDefinition.ResultType.BLOCKING) {
+            throw new DistributionLockException("返回Mono/Flux的方法不支持分布式限流：" + method);
+        }
+    }
+
+    private static String name(String name, Method method) {
+        return StringUtils.isBlank(name) ? method.getName() : name;
+    }
+
+    private static Expression parseKey(String key) {
+        return StringUtils.isBlank(key) ? null : RedissonLockDefinition.PARSER.parseExpression(key);
+    }
+
+    /**
+     * 根据方法参数拼接本次调用的key
+     *
+     * @param target 被代理的对象
+     * @param method 被拦截的方法
+     * @param args   方法参数
+     * @return key
+     */
+    String resolveKey(Object target, Method method, Object[] args) {
+        if (keyExpression == null) {
+            return keyPrefix;
+        }
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(target, method, args,
+                RedissonLockDefinition.PARAMETER_NAME_DISCOVERER);
+        return keyPrefix + RedissonLockDefinition.KEY_SEPARATOR + keyExpression.getValue(context);
+    }
+}
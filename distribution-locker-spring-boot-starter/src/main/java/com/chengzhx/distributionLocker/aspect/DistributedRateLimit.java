@@ -0,0 +1,79 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 集群范围的速率限制，基于Redis中的令牌桶
+ * <p>
+ * 获取不到令牌时抛出DistributionLockException，不支持返回Mono/Flux的方法
+ *
+ * @author ChengZhenxing
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface DistributedRateLimit {
+
+    /**
+     * 限流的名称
+     * 如果不设置，默认为方法名
+     *
+     * @return 限流的名称
+     */
+    String name() default "";
+
+    /**
+     * 动态key的SpEL表达式，与 @RedissonLockAnnotation 的key相同，例如按租户、接口拆分为独立的令牌桶
+     *
+     * @return key表达式
+     */
+    String key() default "";
+
+    /**
+     * 每个周期生成的令牌数
+     *
+     * @return 令牌数
+     */
+    long rate();
+
+    /**
+     * 周期 单位由timeUnit指定，默认1秒
+     *
+     * @return 周期
+     */
+    long period() default 1;
+
+    /**
+     * 桶的容量，即允许的突发数量 默认与rate相同
+     *
+     * @return 容量
+     */
+    long capacity() default 0;
+
+    /**
+     * 令牌不足时的等待时间 单位由timeUnit指定，默认不等待
+     *
+     * @return 等待时间
+     */
+    long waitTime() default 0;
+
+    /**
+     * period和waitTime的时间单位 默认秒
+     *
+     * @return 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 本节点一次预取的令牌数 默认不预取
+     * <p>
+     * 大于1时向Redis获取令牌会尽量一次取走这么多个，多出的令牌留在本节点，之后的调用优先使用本地令牌而不访问Redis；
+     * 本地令牌在一个周期后作废。预取越多Redis访问越少，但各节点之间的分配越不均匀
+     *
+     * @return 预取的令牌数
+     */
+    int localBatch() default 0;
+}
@@ -0,0 +1,20 @@
+package com.chengzhx.distributionLocker.aspect;
+
+/**
+ * Description: 锁的过期方式
+ *
+ * @author ChengZhenxing
+ */
+public enum LeaseMode {
+
+    /**
+     * 固定过期时间，方法执行超过leaseTime时锁会被自动释放
+     */
+    FIXED,
+
+    /**
+     * 自动续期，leaseTime为每次续期后的过期时间，由节点统一的续期线程按redisson.leaseRenewalInterval定期续期，
+     * 方法执行多久就持有多久；节点宕机后锁在leaseTime内自动释放，因此leaseTime可以设置得很短（例如几秒）
+     */
+    RENEW
+}
@@ -0,0 +1,84 @@
+package com.chengzhx.distributionLocker.aspect;
+
+/**
+ * Description: 本节点预取的令牌，在一个周期内使用，过期后作废
+ * <p>
+ * 同一时间只有一个线程向Redis预取，预取期间其他线程不再批量预取
+ *
+ * @author ChengZhenxing
+ */
+final class LocalTokenBudget {
+
+    private long remaining;
+
+    /**
+     * 过期时间（System.nanoTime）
+     */
+    private long expiresAt;
+
+    /**
+     * 是否有线程正在向Redis预取
+     */
+    private boolean fetching;
+
+    /**
+     * 是否已经从缓存中移除，移除后不再放入令牌
+     */
+    private boolean retired;
+
+    /**
+     * 取走一个本地令牌
+     *
+     * @param now 当前时间（System.nanoTime）
+     * @return true-取到 false-没有未过期的令牌
+     */
+    synchronized boolean tryTake(long now) {
+        if (remaining > 0 && now - expiresAt < 0) {
+            remaining--;
+            return true;
+        }
+        remaining = 0;
+        return false;
+    }
+
+    /**
+     * 开始预取
+     *
+     * @return true-由调用线程预取，之后必须调用finishFetch；false-其他线程正在预取或者已经移除
+     */
+    synchronized boolean startFetch() {
+        if (fetching || retired) {
+            return false;
+        }
+        fetching = true;
+        return true;
+    }
+
+    /**
+     * 结束预取并放入新预取的令牌，已有的令牌随新令牌一起在新的过期时间作废
+     *
+     * @param tokens    令牌数
+     * @param expiresAt 过期时间（System.nanoTime）
+     */
+    synchronized void finishFetch(long tokens, long expiresAt) {
+        fetching = false;
+        if (tokens > 0) {
+            this.remaining += tokens;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 没有正在进行的预取并且没有未过期的令牌时标记为已移除
+     *
+     * @param now 当前时间（System.nanoTime）
+     * @return true-可以从缓存中移除
+     */
+    synchronized boolean retireIfIdle(long now) {
+        if (fetching || (remaining > 0 && now - expiresAt < 0)) {
+            return false;
+        }
+        retired = true;
+        return true;
+    }
+}
@@ -1,8 +1,12 @@
 package com.chengzhx.distributionLocker.aspect;
 
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Description:
@@ -23,19 +27,105 @@ public @interface RedissonLockAnnotation {
     String lockName() default "";
 
     /**
-     * 等待时间 单位：秒， 默认10秒
+     * 动态key的SpEL表达式，可以引用方法参数，例如 "#order.id"、"#p0"
+     * 如果设置，在lockName的后面会拼接上":" + 表达式的值，
+     * 这样同一个方法可以按订单、SKU等维度拆分为多把相互独立的细粒度锁
+     * <p>
+     * 表达式在第一次调用时解析并编译，之后每次调用只做求值
+     *
+     * @return key表达式
+     */
+    String key() default "";
+
+    /**
+     * 多key的SpEL表达式，表达式的值需要是集合或者数组，例如 "#cart.skuIds"
+     * 如果设置，会对每个元素拼接出一个key（lockName + ":" + 元素），
+     * 通过一次Redis脚本调用同时获取所有的锁，全部成功才算成功；设置后忽略key属性
+     *
+     * @return 多key表达式
+     */
+    String keys() default "";
+
+    /**
+     * hash tag的SpEL表达式，例如 "#order.tenantId"、"'order'"
+     * 如果设置，key变为 DistributedLock:{表达式的值}:lockName...，hash tag相同的key位于Redis Cluster的同一个slot，
+     * 多key加锁只需要一次脚本调用；不引用方法参数的表达式只在解析时求值一次
+     * <p>
+     * 同一个hash tag的所有key都落在同一个节点上，应按租户等维度分组，不要让所有的锁共用一个hash tag
+     *
+     * @return hash tag表达式
+     */
+    String hashTag() default "";
+
+    /**
+     * 等待时间 单位由timeUnit指定，默认10秒
      *
      * @return 等待时间
      */
     int waitTime() default 10;
 
     /**
-     * 持有锁的时间 单位：秒， 默认30秒
+     * 持有锁的时间 单位由timeUnit指定，默认30秒
      *
      * @return 持有锁的时间
      */
     int leaseTime() default 30;
 
+    /**
+     * waitTime和leaseTime的时间单位 默认秒
+     * <p>
+     * 对延迟敏感的接口可以使用毫秒，例如 waitTime = 50, timeUnit = TimeUnit.MILLISECONDS
+     *
+     * @return 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 获取锁时的等待方式 默认订阅释放通知
+     *
+     * @return 等待方式
+     */
+    WaitStrategy waitStrategy() default WaitStrategy.PUBSUB;
+
+    /**
+     * 锁的模式 默认互斥锁
+     * <p>
+     * 读多写少的接口可以在读方法上使用READ、写方法上使用WRITE（两者lockName和key相同），读方法之间可以并行执行；
+     * READ时本节点的并发读者共享一次Redis读锁，由看门狗续期，leaseTime不生效。
+     * 非EXCLUSIVE模式不支持多key、fencing、自动续期以及返回Mono/Flux的方法
+     *
+     * @return 锁的模式
+     */
+    LockMode lockMode() default LockMode.EXCLUSIVE;
+
+    /**
+     * 锁的过期方式 默认固定过期时间
+     * <p>
+     * 设置为RENEW时，leaseTime表示每次续期后的过期时间，方法执行期间由节点的续期线程自动续期；
+     * 返回CompletionStage的方法在CompletionStage完成时释放锁，不支持RENEW
+     *
+     * @return 锁的过期方式
+     */
+    LeaseMode leaseMode() default LeaseMode.FIXED;
+
+    /**
+     * 自动续期失败时的处理方式，只在leaseMode为RENEW时生效 默认方法结束后抛出异常
+     *
+     * @return 续期失败的处理方式
+     */
+    RenewalFailurePolicy renewalFailurePolicy() default RenewalFailurePolicy.FAIL_FAST;
+
+    /**
+     * 是否在获取锁时生成fencing token 默认否
+     * <p>
+     * token与加锁在同一次Redis调用中生成，同一个key的token单调递增；
+     * 方法声明LockHandle类型的参数即可拿到本次的锁句柄，通过LockHandle.getFencingToken()读取token，
+     * 调用方为该参数传入null即可。不支持返回Mono/Flux的方法
+     *
+     * @return 是否生成fencing token
+     */
+    boolean fencing() default false;
+
     /**
      * 是否使用操作人id作为key的一部分 默认否
      * <p>
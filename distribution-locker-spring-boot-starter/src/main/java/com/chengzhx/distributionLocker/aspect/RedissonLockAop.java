@@ -1,18 +1,34 @@
 package com.chengzhx.distributionLocker.aspect;
 
 import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.metrics.LockMetrics;
+import com.chengzhx.distributionLocker.monitor.LockMonitor;
+import com.chengzhx.distributionLocker.renewal.LeaseRenewalService;
+import com.chengzhx.distributionLocker.service.ReactiveDistributeLocker;
 import com.chengzhx.distributionLocker.service.UserContextService;
-import com.chengzhx.distributionLocker.util.RedissonLockUtil;
-import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockBackend;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.LockOwner;
+import com.chengzhx.distributionLocker.spi.LockRequest;
+import com.chengzhx.distributionLocker.spi.impl.RedissonLockBackend;
+import com.chengzhx.distributionLocker.trace.LockEventTracer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.concurrent.TimeUnit;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Description:
@@ -20,15 +36,42 @@ import java.util.concurrent.TimeUnit;
  * @author ChengZhenxing
  * @since 2023/5/12 11:16
  */
-@Slf4j
 @Aspect
 @Component
 public class RedissonLockAop {
 
     private final UserContextService userContextService;
 
-    public RedissonLockAop(UserContextService userContextService) {
+    /**
+     * 方法 -> 锁定义 缓存，避免每次调用都反射读取注解
+     */
+    private final Map<Method, RedissonLockDefinition> definitionCache = new ConcurrentHashMap<>();
+
+    private final LockBackend lockBackend;
+
+    private final ObjectProvider<ReactiveDistributeLocker> reactiveLockerProvider;
+
+    private final LockMetrics lockMetrics;
+
+    private final LockEventTracer lockEventTracer;
+
+    private final LockMonitor lockMonitor;
+
+    private final ObjectProvider<LeaseRenewalService> leaseRenewalServiceProvider;
+
+    public RedissonLockAop(UserContextService userContextService, LockBackend lockBackend,
+                           ObjectProvider<ReactiveDistributeLocker> reactiveLockerProvider,
+                           ObjectProvider<LockMetrics> lockMetricsProvider,
+                           ObjectProvider<LockEventTracer> lockEventTracerProvider,
+                           ObjectProvider<LockMonitor> lockMonitorProvider,
+                           ObjectProvider<LeaseRenewalService> leaseRenewalServiceProvider) {
         this.userContextService = userContextService;
+        this.lockBackend = lockBackend;
+        this.reactiveLockerProvider = reactiveLockerProvider;
+        this.lockMetrics = lockMetricsProvider.getIfAvailable(() -> LockMetrics.NOOP);
+        this.lockEventTracer = lockEventTracerProvider.getIfAvailable(() -> new LockEventTracer(0D, 1000L));
+        this.lockMonitor = lockMonitorProvider.getIfAvailable(() -> LockMonitor.NOOP);
+        this.leaseRenewalServiceProvider = leaseRenewalServiceProvider;
     }
 
     /**
@@ -40,51 +83,305 @@ public class RedissonLockAop {
 
     @Around("redissonLockAspect()")
     public Object checkLock(ProceedingJoinPoint joinPoint) throws Throwable {
-        // 当前线程名称
-        String currentThreadName = Thread.currentThread().getName();
-        log.info("线程{}------进入分布式锁aop------", currentThreadName);
-        // 获取注解参数
+        // 获取注解参数（每个方法只解析一次）
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        RedissonLockAnnotation redissonLockAnnotation = signature.getMethod().getAnnotation(RedissonLockAnnotation.class);
-        String lockName = redissonLockAnnotation.lockName();
-        int waitTime = redissonLockAnnotation.waitTime();
-        int leaseTime = redissonLockAnnotation.leaseTime();
-        boolean useOperatorIdKey = redissonLockAnnotation.useOperatorIdKey();
-        // 获取锁
-        if (StringUtils.isBlank(lockName)) {
-            log.info("线程{}------分布式锁未设置锁的key------", currentThreadName);
-            lockName = signature.getMethod().getName();
+        RedissonLockDefinition definition = definitionCache.computeIfAbsent(signature.getMethod(), this::define);
+        String keySuffix = "";
+        if (definition.isUseOperatorIdKey()) {
+            keySuffix = RedissonLockDefinition.OPERATOR_ID_SEPARATOR + userContextService.getUserId();
         }
+        boolean future = definition.getResultType() == RedissonLockDefinition.ResultType.FUTURE;
+        // 返回CompletionStage的方法在其他线程释放锁，持有者不能是当前线程
+        LockRequest request = future ? definition.getLockRequest().withOwner(LockOwner.newOwner()) : definition.getLockRequest();
+        if (definition.isMultiKey()) {
+            if (definition.getResultType().isReactive()) {
+                throw new DistributionLockException("返回Mono/Flux的方法不支持多key加锁");
+            }
+            List<String> lockNames = definition.resolveKeys(joinPoint.getTarget(), signature.getMethod(), joinPoint.getArgs(), keySuffix);
+            // 多key加锁，一次调用获取全部锁，方法返回后一次释放
+            long start = System.nanoTime();
+            LockHandle handle = acquireAll(definition, request, lockNames, start);
+            return future ? proceedFuture(joinPoint, definition, lockNames, handle, start)
+                    : proceedHolding(joinPoint, definition, lockNames, handle, start);
+        }
+        String lockName = definition.resolveKey(joinPoint.getTarget(), signature.getMethod(), joinPoint.getArgs(), keySuffix);
+        if (definition.getResultType().isReactive()) {
+            if (definition.isFencing()) {
+                throw new DistributionLockException("返回Mono/Flux的方法不支持fencing token");
+            }
+            // 返回Mono/Flux的方法：锁在发布者的整个生命周期内持有，不阻塞当前线程
+            return lockReactive(joinPoint, definition, lockName);
+        }
+        // 尝试获取锁，成功后持有锁句柄用于释放
+        long start = System.nanoTime();
+        LockHandle handle = acquire(definition, request, lockName, start);
+        return future ? proceedFuture(joinPoint, definition, lockName, handle, start)
+                : proceedHolding(joinPoint, definition, lockName, handle, start);
+    }
+
+    /**
+     * 获取单把锁，等待期间计入本节点的等待者
+     *
+     * @return 锁句柄，获取失败时为null
+     */
+    private LockHandle acquire(RedissonLockDefinition definition, LockRequest request, String lockName, long start) {
+        lockMonitor.onWaitStart(lockName);
+        LockHandle handle = null;
         try {
-            String baseLockKey = "DistributedLock:";
-            lockName = baseLockKey + lockName;
-            if (useOperatorIdKey) {
-                Integer userId = userContextService.getUserId();
-                log.info("使用操作人id:[{}]作为key的一部分", userId);
-                lockName = lockName + ":operatorId:" + userId;
+            handle = lockBackend.tryAcquire(lockName, request);
+            return handle;
+        } finally {
+            lockMonitor.onWaitEnd(definition.getLockName(), lockName, System.nanoTime() - start, handle != null);
+        }
+    }
+
+    /**
+     * 一次获取多把锁，等待期间每个key都计入本节点的等待者
+     *
+     * @return 锁句柄，获取失败时为null
+     */
+    private LockHandle acquireAll(RedissonLockDefinition definition, LockRequest request, List<String> lockNames, long start) {
+        for (String lockName : lockNames) {
+            lockMonitor.onWaitStart(lockName);
+        }
+        LockHandle handle = null;
+        try {
+            handle = lockBackend.tryAcquireAll(lockNames, request);
+            return handle;
+        } finally {
+            long waitNanos = System.nanoTime() - start;
+            for (String lockName : lockNames) {
+                lockMonitor.onWaitEnd(definition.getLockName(), lockName, waitNanos, handle != null);
             }
-            log.info("线程{}------分布式锁设置锁的key为{}------", currentThreadName, lockName);
-            log.info("key为[{}]分布式锁的等待时间为[{}]秒，持有锁的时间为[{}]秒, 是否使用操作人id作为key[{}]", lockName, waitTime, leaseTime, useOperatorIdKey);
-            // 尝试获取锁
-            if (RedissonLockUtil.tryLock(lockName, TimeUnit.SECONDS, waitTime, leaseTime)) {
-                // 获取锁成功
-                log.info("线程{}------获取分布式锁成功------", currentThreadName);
-                return joinPoint.proceed();
-            } else {
-                // 获取锁失败
-                log.error("线程{}------获取分布式锁失败------", currentThreadName);
-                throw new DistributionLockException("获取分布式锁失败");
+        }
+    }
+
+    /**
+     * 记录加锁结果，获取成功时执行业务方法并在返回后释放锁
+     *
+     * @param lockKey 锁的key（单key为String，多key为集合），只在输出日志时使用
+     * @param handle  锁句柄，获取失败时为null
+     * @param start   开始加锁的时间
+     */
+    private Object proceedHolding(ProceedingJoinPoint joinPoint, RedissonLockDefinition definition, Object lockKey,
+                                  LockHandle handle, long start) throws Throwable {
+        long acquiredAt = onAcquired(definition, lockKey, handle, start);
+        long leaseNanos = definition.getTimeUnit().toNanos(definition.getLeaseTime());
+        LeaseRenewalService.Renewal renewal = null;
+        Object result = null;
+        Throwable failure = null;
+        try {
+            if (definition.isRenewable()) {
+                renewal = leaseRenewalService().register(handle, leaseNanos,
+                        definition.getRenewalFailurePolicy() == RenewalFailurePolicy.INTERRUPT);
             }
+            result = proceed(joinPoint, definition, handle);
+        } catch (Throwable e) {
+            failure = e;
         } finally {
-            if (RedissonLockUtil.isLocked(lockName)) {
-                log.info("线程{}------释放分布式锁------", currentThreadName);
-                // 释放锁
-                if (RedissonLockUtil.isHeldByCurrentThread(lockName)) {
-                    log.info("线程{}------当前线程持有分布式锁，释放锁------", currentThreadName);
-                    RedissonLockUtil.unLock(lockName);
-                    log.info("线程{}------释放分布式锁成功------", currentThreadName);
-                }
+            // 先停止续期，再释放锁：一次带持有者校验的解锁请求
+            if (renewal != null) {
+                renewal.cancel();
             }
+            release(definition, lockKey, handle, acquiredAt);
+        }
+        if (renewal != null && renewal.isLost()) {
+            throw new DistributionLockException("分布式锁续期失败，方法执行期间锁可能已被其他持有者获取", failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * 记录加锁结果，获取成功时执行返回CompletionStage的业务方法，在CompletionStage完成时释放锁
+     * <p>
+     * 锁的持有者是本次调用创建的LockOwner，完成CompletionStage的线程可以直接释放；方法同步抛出异常或返回null时立即释放
+     */
+    private Object proceedFuture(ProceedingJoinPoint joinPoint, RedissonLockDefinition definition, Object lockKey,
+                                 LockHandle handle, long start) throws Throwable {
+        long acquiredAt = onAcquired(definition, lockKey, handle, start);
+        Object result;
+        try {
+            result = proceed(joinPoint, definition, handle);
+        } catch (Throwable e) {
+            release(definition, lockKey, handle, acquiredAt);
+            throw e;
+        }
+        if (result == null) {
+            release(definition, lockKey, handle, acquiredAt);
+            return null;
+        }
+        return ((CompletionStage<?>) result).whenComplete((value, error) -> release(definition, lockKey, handle, acquiredAt));
+    }
+
+    /**
+     * 记录加锁结果，获取失败时抛出异常
+     *
+     * @return 获取成功的时间
+     */
+    private long onAcquired(RedissonLockDefinition definition, Object lockKey, LockHandle handle, long start) {
+        long acquiredAt = System.nanoTime();
+        lockMetrics.recordAcquire(definition.getLockName(), acquiredAt - start, handle != null);
+        if (handle == null) {
+            lockEventTracer.onAcquireFailed(lockKey, acquiredAt - start);
+            throw new DistributionLockException("获取分布式锁失败");
+        }
+        lockEventTracer.onAcquired(lockKey, acquiredAt - start);
+        // 自动续期的锁没有固定的过期时间
+        lockMonitor.onHeld(definition.getLockName(), handle,
+                definition.isRenewable() ? -1L : definition.getTimeUnit().toNanos(definition.getLeaseTime()));
+        return acquiredAt;
+    }
+
+    private void release(RedissonLockDefinition definition, Object lockKey, LockHandle handle, long acquiredAt) {
+        lockMonitor.onReleased(handle);
+        long releaseStart = System.nanoTime();
+        boolean released = lockBackend.release(handle);
+        lockMetrics.recordRelease(definition.getLockName(), releaseStart - acquiredAt, System.nanoTime() - releaseStart, !released);
+        lockEventTracer.onReleased(lockKey, releaseStart - acquiredAt, released);
+    }
+
+    /**
+     * 执行业务方法，方法声明了LockHandle参数时传入本次的锁句柄
+     */
+    private static Object proceed(ProceedingJoinPoint joinPoint, RedissonLockDefinition definition, LockHandle handle) throws Throwable {
+        int index = definition.getHandleParameterIndex();
+        if (index < 0) {
+            return joinPoint.proceed();
+        }
+        Object[] args = joinPoint.getArgs().clone();
+        args[index] = handle;
+        return joinPoint.proceed(args);
+    }
+
+    /**
+     * 解析方法的加锁定义，自动续期的leaseTime相对续期间隔过短时拒绝，而不是等到锁在执行中过期
+     * <p>
+     * 返回Mono/Flux的方法由响应式Redis锁加锁，锁后端不是Redisson时与同名的阻塞方法不互斥，直接拒绝
+     */
+    private RedissonLockDefinition define(Method method) {
+        RedissonLockDefinition definition = RedissonLockDefinition.of(method);
+        if (definition.getResultType().isReactive() && !(lockBackend instanceof RedissonLockBackend)) {
+            throw new DistributionLockException("返回Mono/Flux的方法只支持redisson锁后端，当前锁后端为"
+                    + lockBackend.getClass().getSimpleName());
+        }
+        if (definition.isRenewable()) {
+            leaseRenewalService().checkLeaseTime(definition.getTimeUnit().toNanos(definition.getLeaseTime()));
+        }
+        return definition;
+    }
+
+    private LeaseRenewalService leaseRenewalService() {
+        LeaseRenewalService leaseRenewalService = leaseRenewalServiceProvider.getIfAvailable();
+        if (leaseRenewalService == null) {
+            throw new DistributionLockException("未配置锁续期服务，无法使用自动续期");
+        }
+        return leaseRenewalService;
+    }
+
+    /**
+     * 响应式方法加锁，发布者完成、出错或被取消时释放锁
+     * <p>
+     * 等待时间从订阅开始计算到开始执行业务，持有时间从开始执行业务计算到开始释放锁
+     */
+    private Object lockReactive(ProceedingJoinPoint joinPoint, RedissonLockDefinition definition, String lockName) {
+        ReactiveDistributeLocker reactiveLocker = reactiveLockerProvider.getIfAvailable();
+        if (reactiveLocker == null) {
+            throw new DistributionLockException("未配置响应式分布式锁，无法对返回Mono/Flux的方法加锁");
+        }
+        Mono<ReactiveHold> acquire = acquireReactive(reactiveLocker, definition, lockName);
+        if (definition.getResultType() == RedissonLockDefinition.ResultType.MONO) {
+            return Mono.usingWhen(acquire,
+                    hold -> Mono.from(proceedPublisher(joinPoint)),
+                    hold -> releaseReactive(reactiveLocker, definition, lockName, hold),
+                    (hold, error) -> releaseReactive(reactiveLocker, definition, lockName, hold),
+                    hold -> releaseReactive(reactiveLocker, definition, lockName, hold));
+        }
+        return Flux.usingWhen(acquire,
+                hold -> proceedPublisher(joinPoint),
+                hold -> releaseReactive(reactiveLocker, definition, lockName, hold),
+                (hold, error) -> releaseReactive(reactiveLocker, definition, lockName, hold),
+                hold -> releaseReactive(reactiveLocker, definition, lockName, hold));
+    }
+
+    /**
+     * 每次订阅生成新的持有者id并获取锁，获取失败（包括Redis请求出错）时记录失败并以DistributionLockException结束
+     */
+    private Mono<ReactiveHold> acquireReactive(ReactiveDistributeLocker reactiveLocker, RedissonLockDefinition definition,
+                                               String lockName) {
+        // 响应式方法的自动续期交给Redisson的看门狗（leaseTime为-1）
+        long leaseTime = definition.isRenewable() ? -1L : definition.getLeaseTime();
+        // 响应式锁只支持订阅释放通知，FAIL_FAST时不等待
+        long waitTime = definition.getLockRequest().getWaitStrategy() == WaitStrategy.FAIL_FAST ? 0L : definition.getWaitTime();
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            long ownerId = LockOwner.newOwnerId();
+            return reactiveLocker.tryLock(lockName, waitTime, leaseTime, definition.getTimeUnit(), ownerId)
+                    .onErrorMap(e -> {
+                        onReactiveAcquireFailed(definition, lockName, start);
+                        return new DistributionLockException("获取锁[" + lockName + "]时Redis请求失败", e);
+                    })
+                    .flatMap(acquired -> {
+                        if (!acquired) {
+                            onReactiveAcquireFailed(definition, lockName, start);
+                            return Mono.<ReactiveHold>error(new DistributionLockException("获取分布式锁失败"));
+                        }
+                        long acquiredAt = System.nanoTime();
+                        lockMetrics.recordAcquire(definition.getLockName(), acquiredAt - start, true);
+                        lockEventTracer.onAcquired(lockName, acquiredAt - start);
+                        return Mono.just(new ReactiveHold(ownerId, acquiredAt));
+                    });
+        });
+    }
+
+    private void onReactiveAcquireFailed(RedissonLockDefinition definition, String lockName, long start) {
+        long waitNanos = System.nanoTime() - start;
+        lockMetrics.recordAcquire(definition.getLockName(), waitNanos, false);
+        lockEventTracer.onAcquireFailed(lockName, waitNanos);
+    }
+
+    /**
+     * 释放锁并记录解锁耗时和结果，释放失败（例如持有时间已过期）不影响业务结果
+     */
+    private Mono<Void> releaseReactive(ReactiveDistributeLocker reactiveLocker, RedissonLockDefinition definition,
+                                       String lockName, ReactiveHold hold) {
+        return Mono.defer(() -> {
+            long releaseStart = System.nanoTime();
+            return reactiveLocker.unLock(lockName, hold.ownerId)
+                    .thenReturn(Boolean.TRUE)
+                    .onErrorReturn(Boolean.FALSE)
+                    .doOnNext(released -> {
+                        lockMetrics.recordRelease(definition.getLockName(), releaseStart - hold.acquiredAt,
+                                System.nanoTime() - releaseStart, !released);
+                        lockEventTracer.onReleased(lockName, releaseStart - hold.acquiredAt, released);
+                    })
+                    .then();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Publisher<Object> proceedPublisher(ProceedingJoinPoint joinPoint) {
+        try {
+            return (Publisher<Object>) joinPoint.proceed();
+        } catch (Throwable e) {
+            return Mono.error(e);
+        }
+    }
+
+    /**
+     * 响应式方法持有的锁：持有者id和获取成功的时间
+     */
+    private static final class ReactiveHold {
+
+        private final long ownerId;
+
+        private final long acquiredAt;
+
+        private ReactiveHold(long ownerId, long acquiredAt) {
+            this.ownerId = ownerId;
+            this.acquiredAt = acquiredAt;
         }
     }
 }
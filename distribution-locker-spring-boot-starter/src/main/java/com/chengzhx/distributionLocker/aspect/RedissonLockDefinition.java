@@ -0,0 +1,326 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.LockRequest;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.util.ObjectUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 被 @RedissonLockAnnotation 修饰的方法解析后的锁定义
+ * <p>
+ * 每个方法只在第一次调用时解析一次注解并缓存，切面在热路径上只需要查表并拼接一次key
+ *
+ * @author ChengZhenxing
+ */
+@Getter
+final class RedissonLockDefinition {
+
+    /**
+     * 分布式锁key的统一前缀
+     */
+    static final String BASE_LOCK_KEY = "DistributedLock:";
+
+    /**
+     * 操作人id在key中的连接符
+     */
+    static final String OPERATOR_ID_SEPARATOR = ":operatorId:";
+
+    /**
+     * 动态key在key中的连接符
+     */
+    static final String KEY_SEPARATOR = ":";
+
+    /**
+     * SpEL解析器，MIXED模式下表达式在多次解释执行后会被编译为字节码
+     */
+    static final ExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, RedissonLockDefinition.class.getClassLoader()));
+
+    static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 锁的名称（未设置时为方法名）
+     */
+    private final String lockName;
+
+    /**
+     * 已拼接好前缀的key，例如 DistributedLock:lockName，hash tag为常量时为 DistributedLock:{tag}:lockName
+     */
+    private final String keyPrefix;
+
+    /**
+     * 引用了方法参数的hash tag表达式，未设置或为常量时为null
+     */
+    private final Expression hashTagExpression;
+
+    /**
+     * 已解析的动态key表达式，未设置时为null
+     */
+    private final Expression keyExpression;
+
+    /**
+     * 已解析的多key表达式，未设置时为null
+     */
+    private final Expression keysExpression;
+
+    private final int waitTime;
+
+    private final int leaseTime;
+
+    /**
+     * waitTime和leaseTime的时间单位
+     */
+    private final TimeUnit timeUnit;
+
+    /**
+     * 获取锁的参数，每次调用共用
+     */
+    private final LockRequest lockRequest;
+
+    private final LockMode lockMode;
+
+    private final boolean useOperatorIdKey;
+
+    private final LeaseMode leaseMode;
+
+    private final RenewalFailurePolicy renewalFailurePolicy;
+
+    /**
+     * 是否生成fencing token
+     */
+    private final boolean fencing;
+
+    /**
+     * LockHandle类型参数的下标，切面把本次的锁句柄传入该参数，没有时为-1
+     */
+    private final int handleParameterIndex;
+
+    /**
+     * 方法返回值类型，决定锁的持有范围
+     */
+    private final ResultType resultType;
+
+    private RedissonLockDefinition(String lockName, String hashTag, Expression hashTagExpression, Expression keyExpression,
+                                   Expression keysExpression, int waitTime,
+                                   int leaseTime, TimeUnit timeUnit, WaitStrategy waitStrategy, LockMode lockMode,
+                                   boolean useOperatorIdKey, LeaseMode leaseMode,
+                                   RenewalFailurePolicy renewalFailurePolicy, boolean fencing, int handleParameterIndex,
+                                   ResultType resultType) {
+        this.lockName = lockName;
+        this.keyPrefix = hashTag == null ? BASE_LOCK_KEY + lockName : taggedPrefix(hashTag, lockName);
+        this.hashTagExpression = hashTagExpression;
+        this.keyExpression = keyExpression;
+        this.keysExpression = keysExpression;
+        this.waitTime = waitTime;
+        this.leaseTime = leaseTime;
+        this.timeUnit = timeUnit;
+        this.lockRequest = LockRequest.builder()
+                .timeUnit(timeUnit)
+                .waitTime(waitTime)
+                .leaseTime(leaseTime)
+                .waitStrategy(waitStrategy)
+                .lockMode(lockMode)
+                .fencing(fencing)
+                .build();
+        this.lockMode = lockMode;
+        this.useOperatorIdKey = useOperatorIdKey;
+        this.leaseMode = leaseMode;
+        this.renewalFailurePolicy = renewalFailurePolicy;
+        this.fencing = fencing;
+        this.handleParameterIndex = handleParameterIndex;
+        this.resultType = resultType;
+    }
+
+    /**
+     * 解析方法上的注解
+     *
+     * @param method 被拦截的方法
+     * @return 锁定义
+     */
+    static RedissonLockDefinition of(Method method) {
+        RedissonLockAnnotation annotation = method.getAnnotation(RedissonLockAnnotation.class);
+        String lockName = annotation.lockName();
+        if (StringUtils.isBlank(lockName)) {
+            lockName = method.getName();
+        }
+        Expression keyExpression = StringUtils.isBlank(annotation.key()) ? null : PARSER.parseExpression(annotation.key());
+        Expression keysExpression = StringUtils.isBlank(annotation.keys()) ? null : PARSER.parseExpression(annotation.keys());
+        String hashTag = null;
+        Expression hashTagExpression = null;
+        if (StringUtils.isNotBlank(annotation.hashTag())) {
+            hashTagExpression = PARSER.parseExpression(annotation.hashTag());
+            if (!annotation.hashTag().contains("#")) {
+                // 不引用方法参数，解析时求值一次
+                hashTag = String.valueOf(hashTagExpression.getValue());
+                hashTagExpression = null;
+            }
+        }
+        ResultType resultType = ResultType.of(method.getReturnType());
+        if (annotation.lockMode() != LockMode.EXCLUSIVE && (keysExpression != null || annotation.fencing()
+                || annotation.leaseMode() == LeaseMode.RENEW || resultType.isReactive())) {
+            throw new DistributionLockException("lockMode为" + annotation.lockMode()
+                    + "时不支持多key、fencing、自动续期以及返回Mono/Flux的方法：" + method);
+        }
+        if (resultType == ResultType.FUTURE && annotation.leaseMode() == LeaseMode.RENEW) {
+            // 续期失败时需要中断执行业务的线程，异步方法返回后已经没有这样的线程
+            throw new DistributionLockException("返回CompletionStage的方法不支持自动续期：" + method);
+        }
+        return new RedissonLockDefinition(lockName, hashTag, hashTagExpression, keyExpression, keysExpression, annotation.waitTime(), annotation.leaseTime(),
+                annotation.timeUnit(), annotation.waitStrategy(), annotation.lockMode(), annotation.useOperatorIdKey(),
+                annotation.leaseMode(), annotation.renewalFailurePolicy(), annotation.fencing(), handleParameterIndex(method),
+                resultType);
+    }
+
+    private static int handleParameterIndex(Method method) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (parameterTypes[i] == LockHandle.class) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 根据方法参数拼接本次调用的key
+     *
+     * @param target 被代理的对象
+     * @param method 被拦截的方法
+     * @param args   方法参数
+     * @param suffix 拼接在key后面的后缀（操作人id部分），没有时为空字符串
+     * @return key
+     */
+    String resolveKey(Object target, Method method, Object[] args, String suffix) {
+        if (keyExpression == null && hashTagExpression == null) {
+            return suffix.isEmpty() ? keyPrefix : keyPrefix + suffix;
+        }
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(target, method, args, PARAMETER_NAME_DISCOVERER);
+        String prefix = resolvePrefix(context);
+        if (keyExpression == null) {
+            return prefix + suffix;
+        }
+        Object value = keyExpression.getValue(context);
+        return prefix + KEY_SEPARATOR + value + suffix;
+    }
+
+    /**
+     * 本次调用的key前缀，hash tag引用了方法参数时按参数拼接
+     */
+    private String resolvePrefix(EvaluationContext context) {
+        if (hashTagExpression == null) {
+            return keyPrefix;
+        }
+        return taggedPrefix(String.valueOf(hashTagExpression.getValue(context)), lockName);
+    }
+
+    private static String taggedPrefix(String hashTag, String lockName) {
+        return BASE_LOCK_KEY + "{" + hashTag + "}" + KEY_SEPARATOR + lockName;
+    }
+
+    /**
+     * 是否自动续期
+     *
+     * @return true-自动续期
+     */
+    boolean isRenewable() {
+        return leaseMode == LeaseMode.RENEW;
+    }
+
+    /**
+     * 是否为多key加锁
+     *
+     * @return true-多key
+     */
+    boolean isMultiKey() {
+        return keysExpression != null;
+    }
+
+    /**
+     * 根据方法参数拼接本次调用的所有key
+     *
+     * @param target 被代理的对象
+     * @param method 被拦截的方法
+     * @param args   方法参数
+     * @param suffix 拼接在每个key后面的后缀（操作人id部分）
+     * @return key列表
+     */
+    List<String> resolveKeys(Object target, Method method, Object[] args, String suffix) {
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(target, method, args, PARAMETER_NAME_DISCOVERER);
+        String prefix = resolvePrefix(context);
+        Object value = keysExpression.getValue(context);
+        Object[] elements;
+        if (value instanceof Collection) {
+            elements = ((Collection<?>) value).toArray();
+        } else if (value != null && !value.getClass().isArray()) {
+            elements = new Object[]{value};
+        } else {
+            elements = ObjectUtils.toObjectArray(value);
+        }
+        List<String> keys = new ArrayList<>(elements.length);
+        for (Object element : elements) {
+            keys.add(prefix + KEY_SEPARATOR + element + suffix);
+        }
+        return keys;
+    }
+
+    /**
+     * 方法返回值类型
+     */
+    enum ResultType {
+        /**
+         * 普通方法，方法返回时释放锁
+         */
+        BLOCKING,
+        /**
+         * 返回Mono，Mono结束时释放锁
+         */
+        MONO,
+        /**
+         * 返回Flux，Flux结束时释放锁
+         */
+        FLUX,
+        /**
+         * 返回CompletionStage，CompletionStage完成时在完成它的线程上释放锁
+         */
+        FUTURE;
+
+        static ResultType of(Class<?> returnType) {
+            if (CompletionStage.class.isAssignableFrom(returnType)) {
+                return FUTURE;
+            }
+            if (Mono.class.isAssignableFrom(returnType)) {
+                return MONO;
+            }
+            if (Flux.class.isAssignableFrom(returnType)) {
+                return FLUX;
+            }
+            return BLOCKING;
+        }
+
+        boolean isReactive() {
+            return this == MONO || this == FLUX;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.chengzhx.distributionLocker.aspect;
+
+/**
+ * Description: 自动续期失败（锁已过期或已不被当前持有者持有）时的处理方式
+ *
+ * @author ChengZhenxing
+ */
+public enum RenewalFailurePolicy {
+
+    /**
+     * 不打断正在执行的方法，方法结束后抛出DistributionLockException
+     */
+    FAIL_FAST,
+
+    /**
+     * 立即中断执行方法的线程，方法结束后同样抛出DistributionLockException
+     */
+    INTERRUPT
+}
@@ -1,19 +1,46 @@
 package com.chengzhx.distributionLocker.config;
 
+import com.chengzhx.distributionLocker.metrics.LockMetrics;
+import com.chengzhx.distributionLocker.metrics.MicrometerLockMetrics;
+import com.chengzhx.distributionLocker.monitor.DefaultLockMonitor;
+import com.chengzhx.distributionLocker.monitor.DistributionLocksEndpoint;
+import com.chengzhx.distributionLocker.renewal.LeaseRenewalService;
+import com.chengzhx.distributionLocker.spi.LockBackend;
+import com.chengzhx.distributionLocker.trace.LockEventTracer;
 import com.chengzhx.distributionLocker.util.RedissonLockUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.apache.commons.lang3.StringUtils;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.config.BaseConfig;
 import org.redisson.config.ClusterServersConfig;
 import org.redisson.config.Config;
+import org.redisson.config.MasterSlaveServersConfig;
+import org.redisson.config.SentinelServersConfig;
 import org.redisson.config.SingleServerConfig;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+import com.chengzhx.distributionLocker.service.DistributeLocker;
+import com.chengzhx.distributionLocker.service.impl.LocalCoalescingDistributeLocker;
+import com.chengzhx.distributionLocker.service.impl.RedissonDistributeLimiter;
 import com.chengzhx.distributionLocker.service.impl.RedissonDistributeLocker;
+import com.chengzhx.distributionLocker.service.impl.RedissonReactiveDistributeLocker;
+import com.chengzhx.distributionLocker.spi.impl.InMemoryLockBackend;
+import com.chengzhx.distributionLocker.spi.impl.RedissonLockBackend;
 
 /**
  * Description:
@@ -36,31 +63,35 @@ public class RedissonAutoConfiguration {
     /**
      * 单机模式自动装配
      *
+     * @param customizers RedissonClientCustomizer
      * @return RedissonClient
      */
     @Bean
     @ConditionalOnProperty(name = "redisson.address")
-    RedissonClient redissonSingle() {
+    RedissonClient redissonSingle(ObjectProvider<RedissonClientCustomizer> customizers) {
         Config config = new Config();
         SingleServerConfig serverConfig = config.useSingleServer()
                 .setAddress(redissonProperties.getAddress())
                 .setTimeout(redissonProperties.getTimeout())
                 .setConnectionPoolSize(redissonProperties.getConnectionPoolSize())
-                .setConnectionMinimumIdleSize(redissonProperties.getConnectionMinimumIdleSize());
+                .setConnectionMinimumIdleSize(redissonProperties.getConnectionMinimumIdleSize())
+                .setSubscriptionConnectionPoolSize(redissonProperties.getSubscriptionConnectionPoolSize())
+                .setSubscriptionConnectionMinimumIdleSize(redissonProperties.getSubscriptionConnectionMinimumIdleSize());
         if (StringUtils.isNotBlank(redissonProperties.getPassword())) {
             serverConfig.setPassword(redissonProperties.getPassword());
         }
-        return Redisson.create(config);
+        return createClient(config, serverConfig, customizers);
     }
 
     /**
      * 集群模式自动装配
      *
+     * @param customizers RedissonClientCustomizer
      * @return RedissonClient
      */
     @Bean
     @ConditionalOnProperty(value = "redisson.masterAddresses")
-    public RedissonClient redissonSentinel() {
+    public RedissonClient redissonCluster(ObjectProvider<RedissonClientCustomizer> customizers) {
         Config config = new Config();
         ClusterServersConfig serverConfig = config.useClusterServers().addNodeAddress(redissonProperties.getMasterAddresses())
                 .setTimeout(redissonProperties.getTimeout())
@@ -69,18 +100,276 @@ public class RedissonAutoConfiguration {
                 //主节点线程池数量
                 .setMasterConnectionPoolSize(redissonProperties.getMasterConnectionPoolSize())
                 //从节点线程池数量
-                .setSlaveConnectionPoolSize(redissonProperties.getSlaveConnectionPoolSize());
+                .setSlaveConnectionPoolSize(redissonProperties.getSlaveConnectionPoolSize())
+                //读命令发往的节点
+                .setReadMode(redissonProperties.getReadMode())
+                .setSubscriptionConnectionPoolSize(redissonProperties.getSubscriptionConnectionPoolSize())
+                .setSubscriptionConnectionMinimumIdleSize(redissonProperties.getSubscriptionConnectionMinimumIdleSize());
 
         if (StringUtils.isNotEmpty(redissonProperties.getPassword())) {
             serverConfig.setPassword(redissonProperties.getPassword());
         }
+        return createClient(config, serverConfig, customizers);
+    }
+
+    /**
+     * 哨兵模式自动装配
+     *
+     * @param customizers RedissonClientCustomizer
+     * @return RedissonClient
+     */
+    @Bean
+    @ConditionalOnProperty(value = "redisson.masterName")
+    public RedissonClient redissonSentinel(ObjectProvider<RedissonClientCustomizer> customizers) {
+        Config config = new Config();
+        SentinelServersConfig serverConfig = config.useSentinelServers()
+                .setMasterName(redissonProperties.getMasterName())
+                .addSentinelAddress(redissonProperties.getSentinelAddresses())
+                .setTimeout(redissonProperties.getTimeout())
+                //设置哨兵扫描时间
+                .setScanInterval(redissonProperties.getScanInterval())
+                .setMasterConnectionPoolSize(redissonProperties.getMasterConnectionPoolSize())
+                .setSlaveConnectionPoolSize(redissonProperties.getSlaveConnectionPoolSize())
+                .setReadMode(redissonProperties.getReadMode())
+                .setSubscriptionConnectionPoolSize(redissonProperties.getSubscriptionConnectionPoolSize())
+                .setSubscriptionConnectionMinimumIdleSize(redissonProperties.getSubscriptionConnectionMinimumIdleSize());
+        if (StringUtils.isNotEmpty(redissonProperties.getPassword())) {
+            serverConfig.setPassword(redissonProperties.getPassword());
+        }
+        return createClient(config, serverConfig, customizers);
+    }
+
+    /**
+     * 主从模式自动装配
+     *
+     * @param customizers RedissonClientCustomizer
+     * @return RedissonClient
+     */
+    @Bean
+    @ConditionalOnProperty(value = "redisson.masterAddress")
+    public RedissonClient redissonMasterSlave(ObjectProvider<RedissonClientCustomizer> customizers) {
+        Config config = new Config();
+        MasterSlaveServersConfig serverConfig = config.useMasterSlaveServers()
+                .setMasterAddress(redissonProperties.getMasterAddress())
+                .setTimeout(redissonProperties.getTimeout())
+                .setMasterConnectionPoolSize(redissonProperties.getMasterConnectionPoolSize())
+                .setSlaveConnectionPoolSize(redissonProperties.getSlaveConnectionPoolSize())
+                .setReadMode(redissonProperties.getReadMode())
+                .setSubscriptionConnectionPoolSize(redissonProperties.getSubscriptionConnectionPoolSize())
+                .setSubscriptionConnectionMinimumIdleSize(redissonProperties.getSubscriptionConnectionMinimumIdleSize());
+        if (redissonProperties.getSlaveAddresses() != null) {
+            serverConfig.addSlaveAddress(redissonProperties.getSlaveAddresses());
+        }
+        if (StringUtils.isNotEmpty(redissonProperties.getPassword())) {
+            serverConfig.setPassword(redissonProperties.getPassword());
+        }
+        return createClient(config, serverConfig, customizers);
+    }
+
+    /**
+     * 设置各部署模式共用的线程、编解码器和连接参数，再依次调用RedissonClientCustomizer后创建客户端
+     */
+    private RedissonClient createClient(Config config, BaseConfig<?> serverConfig,
+                                        ObjectProvider<RedissonClientCustomizer> customizers) {
+        config.setThreads(redissonProperties.getThreads())
+                .setNettyThreads(redissonProperties.getNettyThreads());
+        if (StringUtils.isNotBlank(redissonProperties.getCodec())) {
+            Class<?> codecClass = ClassUtils.resolveClassName(redissonProperties.getCodec(), getClass().getClassLoader());
+            config.setCodec((Codec) BeanUtils.instantiateClass(codecClass));
+        }
+        serverConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
+        serverConfig.setConnectTimeout(redissonProperties.getConnectTimeout());
+        serverConfig.setIdleConnectionTimeout(redissonProperties.getIdleConnectionTimeout());
+        serverConfig.setPingConnectionInterval(redissonProperties.getPingConnectionInterval());
+        serverConfig.setRetryAttempts(redissonProperties.getRetryAttempts());
+        serverConfig.setRetryInterval(redissonProperties.getRetryInterval());
+        serverConfig.setKeepAlive(redissonProperties.isKeepAlive());
+        serverConfig.setTcpNoDelay(redissonProperties.isTcpNoDelay());
+        customizers.orderedStream().forEach(customizer -> customizer.customize(config));
         return Redisson.create(config);
     }
 
+    /**
+     * 分布式锁，开启redisson.localCoalescing时在Redis锁前面加一层本地锁
+     *
+     * @param redissonClient RedissonClient
+     * @return DistributeLocker
+     */
     @Bean
-    RedissonDistributeLocker redissonLocker(RedissonClient redissonClient) {
-        RedissonDistributeLocker locker = new RedissonDistributeLocker(redissonClient);
+    @ConditionalOnBean(RedissonClient.class)
+    DistributeLocker redissonLocker(RedissonClient redissonClient) {
+        DistributeLocker locker = new RedissonDistributeLocker(redissonClient, redissonProperties.getLockCacheSize());
+        if (redissonProperties.isLocalCoalescing()) {
+            locker = new LocalCoalescingDistributeLocker(locker, redissonProperties.isLocalLockFair(),
+                    redissonProperties.isLockHandoff(), redissonProperties.getHandoffMaxCount(),
+                    redissonProperties.getHandoffTimeSlice());
+        }
         RedissonLockUtil.setLocker(locker);
         return locker;
     }
+
+    /**
+     * 响应式分布式锁，供WebFlux等场景以及返回Mono/Flux的加锁方法使用
+     *
+     * @param redissonClient RedissonClient
+     * @return RedissonReactiveDistributeLocker
+     */
+    @Bean
+    @ConditionalOnBean(RedissonClient.class)
+    RedissonReactiveDistributeLocker redissonReactiveLocker(RedissonClient redissonClient) {
+        return new RedissonReactiveDistributeLocker(redissonClient.reactive());
+    }
+
+    /**
+     * 分布式限流，供 @DistributedRateLimit 和 @DistributedConcurrencyLimit 使用，同时提供按块租用许可的信号量
+     *
+     * @param redissonClient RedissonClient
+     * @return RedissonDistributeLimiter
+     */
+    @Bean
+    @ConditionalOnBean(RedissonClient.class)
+    RedissonDistributeLimiter redissonLimiter(RedissonClient redissonClient) {
+        return new RedissonDistributeLimiter(redissonClient, redissonProperties.getSemaphoreChunkSize(),
+                redissonProperties.getSemaphoreLeaseTime(), redissonProperties.getSemaphoreIdleTimeout());
+    }
+
+    /**
+     * Redisson锁后端（默认）
+     *
+     * @param distributeLocker DistributeLocker
+     * @return RedissonLockBackend
+     */
+    @Bean
+    @ConditionalOnBean(DistributeLocker.class)
+    @ConditionalOnProperty(name = "redisson.backend", havingValue = "redisson", matchIfMissing = true)
+    RedissonLockBackend redissonLockBackend(DistributeLocker distributeLocker) {
+        return new RedissonLockBackend(distributeLocker);
+    }
+
+    /**
+     * 锁的指标，存在MeterRegistry时记录到Micrometer，否则不记录
+     *
+     * @param meterRegistryProvider MeterRegistry
+     * @return LockMetrics
+     */
+    @Bean
+    LockMetrics lockMetrics(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        return meterRegistry == null ? LockMetrics.NOOP : new MicrometerLockMetrics(meterRegistry);
+    }
+
+    /**
+     * 加锁事件的采样日志
+     *
+     * @return LockEventTracer
+     */
+    @Bean
+    LockEventTracer lockEventTracer() {
+        return new LockEventTracer(redissonProperties.getTraceSampleRate(), redissonProperties.getTraceSlowAcquireMillis());
+    }
+
+    /**
+     * 本地合并锁的交接指标：通过交接省去的Redis获取次数，以及实际的Redis获取、释放次数
+     *
+     * @param distributeLockerProvider DistributeLocker
+     * @return MeterBinder
+     */
+    @Bean
+    MeterBinder localCoalescingLockerMetrics(ObjectProvider<DistributeLocker> distributeLockerProvider) {
+        return registry -> {
+            DistributeLocker locker = distributeLockerProvider.getIfAvailable();
+            if (!(locker instanceof LocalCoalescingDistributeLocker)) {
+                return;
+            }
+            LocalCoalescingDistributeLocker coalescingLocker = (LocalCoalescingDistributeLocker) locker;
+            FunctionCounter.builder("distribution.lock.handoff", coalescingLocker, LocalCoalescingDistributeLocker::getHandoffCount)
+                    .description("通过本地交接省去的Redis加锁次数").register(registry);
+            FunctionCounter.builder("distribution.lock.remote.acquire", coalescingLocker, LocalCoalescingDistributeLocker::getRemoteAcquireCount)
+                    .description("实际向Redis加锁成功的次数").register(registry);
+            FunctionCounter.builder("distribution.lock.remote.release", coalescingLocker, LocalCoalescingDistributeLocker::getRemoteReleaseCount)
+                    .description("实际向Redis释放锁的次数").register(registry);
+        };
+    }
+
+    /**
+     * 内存锁后端，单节点部署或测试时使用，不需要Redis
+     *
+     * @return InMemoryLockBackend
+     */
+    @Bean
+    @ConditionalOnProperty(name = "redisson.backend", havingValue = "memory")
+    InMemoryLockBackend inMemoryLockBackend() {
+        return new InMemoryLockBackend(redissonProperties.getMemoryLockStripes());
+    }
+
+    /**
+     * 锁的自动续期服务，整个节点共用一个续期线程
+     *
+     * @param lockBackend LockBackend
+     * @return LeaseRenewalService
+     */
+    @Bean
+    @ConditionalOnBean(LockBackend.class)
+    LeaseRenewalService leaseRenewalService(LockBackend lockBackend) {
+        return new LeaseRenewalService(lockBackend, redissonProperties.getLeaseRenewalInterval(),
+                redissonProperties.getLeaseRenewalBatchSize(), redissonProperties.getLeaseRenewalJitter());
+    }
+
+    /**
+     * 自动续期指标：续期成功次数、续期批次数（Redis往返次数）、丢失的锁数量以及当前续期中的锁数量
+     *
+     * @param leaseRenewalServiceProvider LeaseRenewalService
+     * @return MeterBinder
+     */
+    @Bean
+    MeterBinder leaseRenewalMetrics(ObjectProvider<LeaseRenewalService> leaseRenewalServiceProvider) {
+        return registry -> {
+            LeaseRenewalService service = leaseRenewalServiceProvider.getIfAvailable();
+            if (service == null) {
+                return;
+            }
+            FunctionCounter.builder("distribution.lock.renewal.renewed", service, LeaseRenewalService::getRenewedCount)
+                    .description("续期成功的锁次数").register(registry);
+            FunctionCounter.builder("distribution.lock.renewal.batches", service, LeaseRenewalService::getBatchCount)
+                    .description("续期批次数，每批一次Redis往返").register(registry);
+            FunctionCounter.builder("distribution.lock.renewal.lost", service, LeaseRenewalService::getLostCount)
+                    .description("续期失败而丢失的锁数量").register(registry);
+            Gauge.builder("distribution.lock.renewal.active", service, LeaseRenewalService::getActiveCount)
+                    .description("当前自动续期中的锁数量").register(registry);
+        };
+    }
+
+    /**
+     * actuator端点，类路径上有actuator并且端点已开启时装配
+     */
+    @Configuration
+    @ConditionalOnClass(Endpoint.class)
+    static class DistributionLocksEndpointConfiguration {
+
+        /**
+         * 锁状态监控，记录本节点持有、等待的锁以及争用最多的锁；只在端点开启时装配，否则加锁时不记录
+         *
+         * @param redissonProperties RedissonProperties
+         * @return DefaultLockMonitor
+         */
+        @Bean
+        @ConditionalOnAvailableEndpoint(endpoint = DistributionLocksEndpoint.class)
+        DefaultLockMonitor lockMonitor(RedissonProperties redissonProperties) {
+            return new DefaultLockMonitor(redissonProperties.getMonitorWindowMillis(),
+                    redissonProperties.getMonitorContentionThresholdMillis());
+        }
+
+        /**
+         * 分布式锁端点（/actuator/distributionLocks）
+         *
+         * @param lockMonitor        DefaultLockMonitor
+         * @param redissonProperties RedissonProperties
+         * @return DistributionLocksEndpoint
+         */
+        @Bean
+        @ConditionalOnAvailableEndpoint(endpoint = DistributionLocksEndpoint.class)
+        DistributionLocksEndpoint distributionLocksEndpoint(DefaultLockMonitor lockMonitor, RedissonProperties redissonProperties) {
+            return new DistributionLocksEndpoint(lockMonitor, redissonProperties.getMonitorTopK());
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.chengzhx.distributionLocker.config;
+
+import org.redisson.config.Config;
+
+/**
+ * Description: 创建RedissonClient之前对Config做最后的修改
+ * <p>
+ * RedissonProperties中没有覆盖的参数（负载均衡、NameMapper、事件循环等）可以通过声明这个类型的Bean设置，
+ * 多个Bean按@Order的顺序依次调用，在所有属性设置完之后执行，因此可以覆盖属性中的值
+ *
+ * @author ChengZhenxing
+ */
+@FunctionalInterface
+public interface RedissonClientCustomizer {
+
+    /**
+     * 修改Config
+     *
+     * @param config 已按RedissonProperties设置好的Config
+     */
+    void customize(Config config);
+}
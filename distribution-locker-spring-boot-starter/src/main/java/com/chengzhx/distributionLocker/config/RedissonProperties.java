@@ -2,6 +2,7 @@ package com.chengzhx.distributionLocker.config;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.redisson.config.ReadMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -29,12 +30,120 @@ public class RedissonProperties {
 
     private int masterConnectionPoolSize = 250;
 
+    //哨兵模式的哨兵地址，与masterName一起使用
     private String[] sentinelAddresses;
 
+    //哨兵模式监控的主节点名称，设置后使用哨兵模式
     private String masterName;
 
+    //集群模式的节点地址，设置后使用集群模式
     private String[] masterAddresses;
 
-    //集群状态扫描间隔时间，单位是毫秒
+    //主从模式的主节点地址，设置后使用主从模式
+    private String masterAddress;
+
+    //主从模式的从节点地址
+    private String[] slaveAddresses;
+
+    //哨兵、主从、集群模式下读命令（isLocked等锁状态查询）发往的节点：MASTER、SLAVE、MASTER_SLAVE，加锁解锁始终在主节点；从节点的状态可能过期，需要时显式开启
+    private ReadMode readMode = ReadMode.MASTER;
+
+    //集群、哨兵状态扫描间隔时间，单位是毫秒
     private int scanInterval=2000;
+
+    //Redisson内部线程数（RTopic监听器、RRemoteService、异步回调等），0表示CPU核数*2
+    private int threads = 16;
+
+    //Netty的I/O线程数，0表示CPU核数*2
+    private int nettyThreads = 64;
+
+    //编解码器的类名，为空时使用Redisson的默认编解码器；锁的key和脚本参数不受影响
+    private String codec;
+
+    //发布订阅连接池大小，锁的等待者通过订阅接收释放通知，争用激烈时需要调大
+    private int subscriptionConnectionPoolSize = 100;
+
+    //发布订阅连接池的最小空闲连接数
+    private int subscriptionConnectionMinimumIdleSize = 10;
+
+    //每个发布订阅连接上的订阅数
+    private int subscriptionsPerConnection = 10;
+
+    //建立连接的超时时间，单位是毫秒
+    private int connectTimeout = 10000;
+
+    //空闲连接的回收时间，单位是毫秒
+    private int idleConnectionTimeout = 10000;
+
+    //连接的PING间隔，用于发现失效的连接，0表示不发送，单位是毫秒
+    private int pingConnectionInterval = 30000;
+
+    //命令失败后的重试次数
+    private int retryAttempts = 3;
+
+    //命令重试的间隔，单位是毫秒
+    private int retryInterval = 1500;
+
+    //是否开启TCP keepalive
+    private boolean keepAlive = true;
+
+    //是否开启TCP_NODELAY，关闭Nagle算法降低小包的延迟
+    private boolean tcpNoDelay = true;
+
+    //每种锁缓存的锁对象数量，同一个锁名重复加锁时复用同一个对象，0表示不缓存
+    private int lockCacheSize = 10000;
+
+    //是否在Redis锁前面加一层JVM内的本地锁，同一个key在本节点只有一个线程竞争Redis锁
+    private boolean localCoalescing = false;
+
+    //本地锁是否公平，仅在localCoalescing为true时生效
+    private boolean localLockFair = false;
+
+    //是否开启锁交接：持有Redis锁的线程释放时直接交给本地下一个等待线程，仅在localCoalescing为true时生效
+    private boolean lockHandoff = false;
+
+    //一次Redis持有期间最多交接的次数，越大吞吐越高，其他节点等待越久
+    private int handoffMaxCount = 16;
+
+    //一次Redis持有期间允许交接的时间片，单位是毫秒
+    private long handoffTimeSlice = 100;
+
+    //锁后端：redisson（默认）或memory（JVM内存锁，单节点部署和测试使用）
+    private String backend = "redisson";
+
+    //内存锁后端的分段数量
+    private int memoryLockStripes = 64;
+
+    //正常加锁、释放事件的日志采样率（DEBUG级别），0表示不输出，1表示全部输出
+    private double traceSampleRate = 0D;
+
+    //等待时间超过该值的加锁以WARN级别输出，单位是毫秒
+    private long traceSlowAcquireMillis = 1000L;
+
+    //统计锁争用的滑动窗口大小，单位是毫秒
+    private long monitorWindowMillis = 60000L;
+
+    //等待时间超过该值（或获取失败）记为一次争用，单位是毫秒
+    private long monitorContentionThresholdMillis = 10L;
+
+    //actuator端点返回争用最多的锁的数量
+    private int monitorTopK = 10;
+
+    //自动续期（leaseMode = RENEW）的续期间隔，所有锁共用一个续期线程，单位是毫秒
+    private long leaseRenewalInterval = 1000L;
+
+    //自动续期每批（一次pipeline）续期的最大锁数量
+    private int leaseRenewalBatchSize = 500;
+
+    //续期间隔的随机抖动比例，0.1表示间隔在±10%内浮动
+    private double leaseRenewalJitter = 0.1D;
+
+    //按块租用许可的信号量每次向Redis租用的许可数
+    private int semaphoreChunkSize = 100;
+
+    //信号量租约的过期时间，节点宕机后它租用的许可在过期后回到全局，单位是毫秒
+    private long semaphoreLeaseTime = 30000L;
+
+    //信号量空闲超过该时间后归还本节点所有空闲许可，单位是毫秒
+    private long semaphoreIdleTimeout = 10000L;
 }
@@ -11,4 +11,8 @@ public class DistributionLockException extends RuntimeException {
     public DistributionLockException(String message) {
         super(message);
     }
+
+    public DistributionLockException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,43 @@
+package com.chengzhx.distributionLocker.metrics;
+
+/**
+ * Description: 锁的指标记录
+ * <p>
+ * 指标按锁的名称（注解的lockName）聚合，而不是按动态生成的完整key，避免指标数量无限增长
+ *
+ * @author ChengZhenxing
+ */
+public interface LockMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    LockMetrics NOOP = new LockMetrics() {
+        @Override
+        public void recordAcquire(String lockName, long waitNanos, boolean acquired) {
+        }
+
+        @Override
+        public void recordRelease(String lockName, long holdNanos, long releaseNanos, boolean expired) {
+        }
+    };
+
+    /**
+     * 记录一次加锁
+     *
+     * @param lockName  锁的名称
+     * @param waitNanos 等待时间，单位纳秒
+     * @param acquired  是否获取成功
+     */
+    void recordAcquire(String lockName, long waitNanos, boolean acquired);
+
+    /**
+     * 记录一次释放，只对获取成功的锁调用
+     *
+     * @param lockName     锁的名称
+     * @param holdNanos    持有时间，单位纳秒
+     * @param releaseNanos 释放耗时，单位纳秒
+     * @param expired      释放时锁是否已经过期
+     */
+    void recordRelease(String lockName, long holdNanos, long releaseNanos, boolean expired);
+}
@@ -0,0 +1,105 @@
+package com.chengzhx.distributionLocker.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: 基于Micrometer的锁指标
+ * <ul>
+ *     <li>distribution.lock.wait：等待时间</li>
+ *     <li>distribution.lock.hold：持有时间</li>
+ *     <li>distribution.lock.release：释放耗时</li>
+ *     <li>distribution.lock.acquire：加锁次数，result=success/timeout</li>
+ *     <li>distribution.lock.expired：释放时锁已过期的次数</li>
+ *     <li>distribution.lock.inflight：当前持有的锁数量</li>
+ * </ul>
+ * 所有指标都带有lock标签，值为锁的名称
+ *
+ * @author ChengZhenxing
+ */
+public class MicrometerLockMetrics implements LockMetrics {
+
+    private static final String TAG_LOCK = "lock";
+
+    private static final String TAG_RESULT = "result";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 锁的名称 -> 指标，每个名称只注册一次，热路径上只做查表
+     */
+    private final Map<String, FamilyMeters> meters = new ConcurrentHashMap<>();
+
+    public MicrometerLockMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void recordAcquire(String lockName, long waitNanos, boolean acquired) {
+        FamilyMeters family = meters(lockName);
+        family.waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+        if (acquired) {
+            family.acquireSuccess.increment();
+            family.inFlight.incrementAndGet();
+        } else {
+            family.acquireTimeout.increment();
+        }
+    }
+
+    @Override
+    public void recordRelease(String lockName, long holdNanos, long releaseNanos, boolean expired) {
+        FamilyMeters family = meters(lockName);
+        family.inFlight.decrementAndGet();
+        family.holdTimer.record(holdNanos, TimeUnit.NANOSECONDS);
+        family.releaseTimer.record(releaseNanos, TimeUnit.NANOSECONDS);
+        if (expired) {
+            family.expired.increment();
+        }
+    }
+
+    private FamilyMeters meters(String lockName) {
+        FamilyMeters family = meters.get(lockName);
+        return family != null ? family : meters.computeIfAbsent(lockName, name -> new FamilyMeters(meterRegistry, name));
+    }
+
+    private static final class FamilyMeters {
+
+        private final Timer waitTimer;
+
+        private final Timer holdTimer;
+
+        private final Timer releaseTimer;
+
+        private final Counter acquireSuccess;
+
+        private final Counter acquireTimeout;
+
+        private final Counter expired;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private FamilyMeters(MeterRegistry registry, String lockName) {
+            this.waitTimer = Timer.builder("distribution.lock.wait").description("分布式锁等待时间")
+                    .tag(TAG_LOCK, lockName).publishPercentileHistogram().register(registry);
+            this.holdTimer = Timer.builder("distribution.lock.hold").description("分布式锁持有时间")
+                    .tag(TAG_LOCK, lockName).publishPercentileHistogram().register(registry);
+            this.releaseTimer = Timer.builder("distribution.lock.release").description("分布式锁释放耗时")
+                    .tag(TAG_LOCK, lockName).publishPercentileHistogram().register(registry);
+            this.acquireSuccess = Counter.builder("distribution.lock.acquire").description("分布式锁加锁次数")
+                    .tag(TAG_LOCK, lockName).tag(TAG_RESULT, "success").register(registry);
+            this.acquireTimeout = Counter.builder("distribution.lock.acquire").description("分布式锁加锁次数")
+                    .tag(TAG_LOCK, lockName).tag(TAG_RESULT, "timeout").register(registry);
+            this.expired = Counter.builder("distribution.lock.expired").description("释放时分布式锁已过期的次数")
+                    .tag(TAG_LOCK, lockName).register(registry);
+            Gauge.builder("distribution.lock.inflight", inFlight, AtomicInteger::get).description("当前持有的分布式锁数量")
+                    .tag(TAG_LOCK, lockName).register(registry);
+        }
+    }
+}
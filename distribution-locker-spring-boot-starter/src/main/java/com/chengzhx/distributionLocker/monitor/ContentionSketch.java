@@ -0,0 +1,198 @@
+package com.chengzhx.distributionLocker.monitor;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Description: 滑动窗口内的争用计数，用于找出争用最多的锁
+ * <p>
+ * 计数使用Count-Min Sketch，保存在两个轮换的AtomicLongArray中：每半个窗口清空较旧的一个并切换，
+ * 估计值为两个数组之和，即最近半个窗口到一个窗口内的计数。候选key按hash放入固定大小的槽位，
+ * 新key的估计值超过槽位中原有key时替换。记录只做几次原子加和一次CAS，不加锁，内存大小固定
+ *
+ * @author ChengZhenxing
+ */
+public class ContentionSketch {
+
+    private static final int DEPTH = 4;
+
+    private static final int DEFAULT_WIDTH = 1024;
+
+    private static final int DEFAULT_CANDIDATES = 256;
+
+    private final int width;
+
+    private final int widthMask;
+
+    private final AtomicLongArray[] epochs = new AtomicLongArray[2];
+
+    /**
+     * 当前写入的数组下标
+     */
+    private volatile int current;
+
+    /**
+     * 当前数组开始写入的时间（System.nanoTime）
+     */
+    private final AtomicLong epochStart;
+
+    /**
+     * 每个数组负责的时间，为窗口的一半
+     */
+    private final long epochNanos;
+
+    private final AtomicReferenceArray<String> candidates;
+
+    private final int candidateMask;
+
+    public ContentionSketch(long windowNanos) {
+        this(windowNanos, DEFAULT_WIDTH, DEFAULT_CANDIDATES);
+    }
+
+    /**
+     * @param windowNanos 窗口大小，单位纳秒
+     * @param width       每一行的计数器数量，会向上取整为2的幂
+     * @param candidates  候选key的槽位数量，会向上取整为2的幂
+     */
+    public ContentionSketch(long windowNanos, int width, int candidates) {
+        this.width = powerOfTwo(width);
+        this.widthMask = this.width - 1;
+        this.epochs[0] = new AtomicLongArray(DEPTH * this.width);
+        this.epochs[1] = new AtomicLongArray(DEPTH * this.width);
+        this.epochNanos = Math.max(1L, windowNanos / 2);
+        this.epochStart = new AtomicLong(System.nanoTime());
+        int candidateSize = powerOfTwo(candidates);
+        this.candidates = new AtomicReferenceArray<>(candidateSize);
+        this.candidateMask = candidateSize - 1;
+    }
+
+    /**
+     * 记录一次争用
+     *
+     * @param key    锁的key
+     * @param weight 权重
+     */
+    public void record(String key, long weight) {
+        rotateIfNeeded(System.nanoTime());
+        int index = current;
+        AtomicLongArray counts = epochs[index];
+        AtomicLongArray previous = epochs[index ^ 1];
+        int h1 = spread(key.hashCode());
+        int h2 = spread(h1 * 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int i = row * width + ((h1 + row * h2) & widthMask);
+            estimate = Math.min(estimate, counts.addAndGet(i, weight) + previous.get(i));
+        }
+        offer(h1 & candidateMask, key, estimate);
+    }
+
+    /**
+     * 估计窗口内的争用次数
+     *
+     * @param key 锁的key
+     * @return 估计值，可能偏大，不会偏小
+     */
+    public long estimate(String key) {
+        rotateIfNeeded(System.nanoTime());
+        int index = current;
+        AtomicLongArray counts = epochs[index];
+        AtomicLongArray previous = epochs[index ^ 1];
+        int h1 = spread(key.hashCode());
+        int h2 = spread(h1 * 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int i = row * width + ((h1 + row * h2) & widthMask);
+            estimate = Math.min(estimate, counts.get(i) + previous.get(i));
+        }
+        return estimate;
+    }
+
+    /**
+     * 窗口内争用最多的key
+     *
+     * @param k 数量
+     * @return 按争用次数从多到少排列
+     */
+    public List<Contention> top(int k) {
+        List<Contention> result = new ArrayList<>();
+        for (int slot = 0; slot <= candidateMask; slot++) {
+            String key = candidates.get(slot);
+            if (key == null) {
+                continue;
+            }
+            long count = estimate(key);
+            if (count > 0) {
+                result.add(new Contention(key, count));
+            }
+        }
+        result.sort(Comparator.comparingLong(Contention::getCount).reversed());
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    private void offer(int slot, String key, long estimate) {
+        String occupant = candidates.get(slot);
+        if (occupant == null) {
+            candidates.compareAndSet(slot, null, key);
+        } else if (!occupant.equals(key) && estimate(occupant) < estimate) {
+            candidates.compareAndSet(slot, occupant, key);
+        }
+    }
+
+    /**
+     * 超过半个窗口时清空较旧的数组并切换写入，只有CAS成功的线程负责清空
+     */
+    private void rotateIfNeeded(long now) {
+        long start = epochStart.get();
+        long elapsed = now - start;
+        if (elapsed < epochNanos || !epochStart.compareAndSet(start, now)) {
+            return;
+        }
+        int next = current ^ 1;
+        clear(epochs[next]);
+        if (elapsed >= 2 * epochNanos) {
+            // 整个窗口都没有记录，两个数组都已过期
+            clear(epochs[current]);
+        }
+        current = next;
+    }
+
+    private static void clear(AtomicLongArray counts) {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.lazySet(i, 0L);
+        }
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static int powerOfTwo(int value) {
+        return Integer.highestOneBit(Math.max(1, value - 1)) << 1;
+    }
+
+    /**
+     * 一个key的争用次数
+     */
+    @Getter
+    public static final class Contention {
+
+        private final String lockKey;
+
+        private final long count;
+
+        public Contention(String lockKey, long count) {
+            this.lockKey = lockKey;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.chengzhx.distributionLocker.monitor;
+
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description: 默认的锁状态监控
+ * <p>
+ * 本节点持有的锁以锁句柄为key保存，释放时移除；等待者按锁的key用LongAdder计数，加锁路径上只做一次查找和一次累加，
+ * 归零的计数每秒清理一次，因此占用的内存只与最近加锁和当前持有锁的线程数有关。等待时间超过阈值或获取失败记为一次争用。
+ * 只在actuator端点开启时装配，否则使用LockMonitor.NOOP
+ *
+ * @author ChengZhenxing
+ */
+public class DefaultLockMonitor implements LockMonitor {
+
+    /**
+     * 锁句柄 -> 持有信息，LockHandle没有重写equals，按对象比较
+     */
+    private final ConcurrentMap<LockHandle, HeldLock> heldLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 锁的key -> 本节点的等待者数量
+     */
+    private final ConcurrentMap<String, LongAdder> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * 清理归零的等待计数的间隔
+     */
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 下一次清理的时间，只有抢到的线程清理
+     */
+    private final AtomicLong nextSweepAt = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+
+    private final ContentionSketch contentionSketch;
+
+    /**
+     * 记为争用的等待时间阈值，单位纳秒
+     */
+    private final long contentionThresholdNanos;
+
+    /**
+     * @param windowMillis              统计争用的窗口大小，单位毫秒
+     * @param contentionThresholdMillis 等待时间超过该值记为一次争用，单位毫秒
+     */
+    public DefaultLockMonitor(long windowMillis, long contentionThresholdMillis) {
+        this.contentionSketch = new ContentionSketch(TimeUnit.MILLISECONDS.toNanos(windowMillis));
+        this.contentionThresholdNanos = TimeUnit.MILLISECONDS.toNanos(contentionThresholdMillis);
+    }
+
+    @Override
+    public void onWaitStart(String lockKey) {
+        LongAdder count = waiters.get(lockKey);
+        if (count == null) {
+            count = waiters.computeIfAbsent(lockKey, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    @Override
+    public void onWaitEnd(String lockName, String lockKey, long waitNanos, boolean acquired) {
+        LongAdder count = waiters.get(lockKey);
+        if (count != null) {
+            count.decrement();
+        }
+        if (!acquired || waitNanos >= contentionThresholdNanos) {
+            contentionSketch.record(lockKey, 1L);
+        }
+        long now = System.nanoTime();
+        long sweepAt = nextSweepAt.get();
+        if (now - sweepAt >= 0 && nextSweepAt.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+            sweepWaiters();
+        }
+    }
+
+    /**
+     * 移除归零的等待计数；与清理并发开始等待的线程可能计到被移除的计数上，
+     * 之后的结束等待会让新的计数变为负数，读取时按0处理，并在下一次清理时移除
+     */
+    private void sweepWaiters() {
+        waiters.values().removeIf(count -> count.sum() <= 0L);
+    }
+
+    @Override
+    public void onHeld(String lockName, LockHandle handle, long leaseNanos) {
+        heldLocks.put(handle, new HeldLock(lockName, handle, Thread.currentThread(), leaseNanos));
+    }
+
+    @Override
+    public void onReleased(LockHandle handle) {
+        heldLocks.remove(handle);
+    }
+
+    /**
+     * 本节点当前持有的锁
+     *
+     * @return 持有信息
+     */
+    public List<HeldLock> getHeldLocks() {
+        return new ArrayList<>(heldLocks.values());
+    }
+
+    /**
+     * 本节点正在等待的锁
+     *
+     * @return 锁的key -> 等待者数量
+     */
+    public Map<String, Integer> getWaiters() {
+        Map<String, Integer> result = new HashMap<>();
+        waiters.forEach((lockKey, count) -> {
+            long sum = count.sum();
+            if (sum > 0L) {
+                result.put(lockKey, (int) sum);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 本节点等待某一把锁的线程数量
+     *
+     * @param lockKey 锁的key
+     * @return 等待者数量
+     */
+    public int getWaiters(String lockKey) {
+        LongAdder count = waiters.get(lockKey);
+        return count == null ? 0 : (int) Math.max(0L, count.sum());
+    }
+
+    /**
+     * 窗口内争用最多的锁
+     *
+     * @param k 数量
+     * @return 按争用次数从多到少排列
+     */
+    public List<ContentionSketch.Contention> getTopContended(int k) {
+        return contentionSketch.top(k);
+    }
+
+    /**
+     * 一把被本节点持有的锁
+     */
+    @Getter
+    public static final class HeldLock {
+
+        /**
+         * 锁的名称
+         */
+        private final String lockName;
+
+        private final LockHandle handle;
+
+        /**
+         * 获取锁的线程，名称在读取端点时再获取
+         */
+        @Getter(AccessLevel.NONE)
+        private final Thread thread;
+
+        /**
+         * 锁的过期时间，单位纳秒，小于等于0表示由看门狗续期
+         */
+        private final long leaseNanos;
+
+        public HeldLock(String lockName, LockHandle handle, Thread thread, long leaseNanos) {
+            this.lockName = lockName;
+            this.handle = handle;
+            this.thread = thread;
+            this.leaseNanos = leaseNanos;
+        }
+
+        /**
+         * 获取锁的线程名称
+         *
+         * @return 线程名称
+         */
+        public String getThreadName() {
+            return thread.getName();
+        }
+
+        /**
+         * 已持有的时间
+         *
+         * @return 单位毫秒
+         */
+        public long getHeldMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - handle.getAcquiredAt());
+        }
+
+        /**
+         * 剩余的过期时间
+         *
+         * @return 单位毫秒，由看门狗续期时返回-1
+         */
+        public long getRemainingLeaseMillis() {
+            if (leaseNanos <= 0) {
+                return -1L;
+            }
+            return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(leaseNanos - (System.nanoTime() - handle.getAcquiredAt())));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.chengzhx.distributionLocker.monitor;
+
+import lombok.Getter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description: 分布式锁的actuator端点（/actuator/distributionLocks）
+ * <p>
+ * 返回本节点当前持有的锁（持有时间、剩余过期时间、本地等待者数量）、正在等待的锁，以及窗口内争用最多的锁
+ *
+ * @author ChengZhenxing
+ */
+@Endpoint(id = "distributionLocks")
+public class DistributionLocksEndpoint {
+
+    private final DefaultLockMonitor lockMonitor;
+
+    private final int topK;
+
+    // 构造函数
+    public DistributionLocksEndpoint(DefaultLockMonitor lockMonitor, int topK) {
+        this.lockMonitor = lockMonitor;
+        this.topK = topK;
+    }
+
+    @ReadOperation
+    public LocksDescriptor locks() {
+        List<HeldLockDescriptor> heldLocks = new ArrayList<>();
+        for (DefaultLockMonitor.HeldLock heldLock : lockMonitor.getHeldLocks()) {
+            int localWaiters = 0;
+            for (String lockKey : heldLock.getHandle().getLockKeys()) {
+                localWaiters += lockMonitor.getWaiters(lockKey);
+            }
+            heldLocks.add(new HeldLockDescriptor(heldLock, localWaiters));
+        }
+        return new LocksDescriptor(heldLocks, lockMonitor.getWaiters(), lockMonitor.getTopContended(topK));
+    }
+
+    /**
+     * 端点的返回结果
+     */
+    @Getter
+    public static final class LocksDescriptor {
+
+        /**
+         * 本节点持有的锁
+         */
+        private final List<HeldLockDescriptor> heldLocks;
+
+        /**
+         * 本节点正在等待的锁：锁的key -> 等待者数量
+         */
+        private final Map<String, Integer> waiting;
+
+        /**
+         * 窗口内争用最多的锁
+         */
+        private final List<ContentionSketch.Contention> topContended;
+
+        private LocksDescriptor(List<HeldLockDescriptor> heldLocks, Map<String, Integer> waiting,
+                                List<ContentionSketch.Contention> topContended) {
+            this.heldLocks = heldLocks;
+            this.waiting = waiting;
+            this.topContended = topContended;
+        }
+    }
+
+    /**
+     * 一把被本节点持有的锁
+     */
+    @Getter
+    public static final class HeldLockDescriptor {
+
+        private final String lockName;
+
+        private final List<String> lockKeys;
+
+        private final long ownerId;
+
+        private final String threadName;
+
+        private final long heldMillis;
+
+        /**
+         * 剩余的过期时间，由看门狗续期时为-1
+         */
+        private final long remainingLeaseMillis;
+
+        private final int localWaiters;
+
+        private HeldLockDescriptor(DefaultLockMonitor.HeldLock heldLock, int localWaiters) {
+            this.lockName = heldLock.getLockName();
+            this.lockKeys = heldLock.getHandle().getLockKeys();
+            this.ownerId = heldLock.getHandle().getOwnerId();
+            this.threadName = heldLock.getThreadName();
+            this.heldMillis = heldLock.getHeldMillis();
+            this.remainingLeaseMillis = heldLock.getRemainingLeaseMillis();
+            this.localWaiters = localWaiters;
+        }
+    }
+}
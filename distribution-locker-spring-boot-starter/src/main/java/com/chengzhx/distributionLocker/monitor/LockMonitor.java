@@ -0,0 +1,67 @@
+package com.chengzhx.distributionLocker.monitor;
+
+import com.chengzhx.distributionLocker.spi.LockHandle;
+
+/**
+ * Description: 锁状态监控，记录本节点的等待者、持有的锁以及锁的争用情况
+ * <p>
+ * 与LockMetrics不同，这里按完整的锁key记录，供actuator端点查看某一把锁的实时状态
+ *
+ * @author ChengZhenxing
+ */
+public interface LockMonitor {
+
+    /**
+     * 不记录任何状态
+     */
+    LockMonitor NOOP = new LockMonitor() {
+        @Override
+        public void onWaitStart(String lockKey) {
+        }
+
+        @Override
+        public void onWaitEnd(String lockName, String lockKey, long waitNanos, boolean acquired) {
+        }
+
+        @Override
+        public void onHeld(String lockName, LockHandle handle, long leaseNanos) {
+        }
+
+        @Override
+        public void onReleased(LockHandle handle) {
+        }
+    };
+
+    /**
+     * 开始等待锁
+     *
+     * @param lockKey 锁的key
+     */
+    void onWaitStart(String lockKey);
+
+    /**
+     * 结束等待，与onWaitStart成对调用
+     *
+     * @param lockName  锁的名称
+     * @param lockKey   锁的key
+     * @param waitNanos 等待时间，单位纳秒
+     * @param acquired  是否获取成功
+     */
+    void onWaitEnd(String lockName, String lockKey, long waitNanos, boolean acquired);
+
+    /**
+     * 获取锁成功，开始持有
+     *
+     * @param lockName   锁的名称
+     * @param handle     锁句柄
+     * @param leaseNanos 锁的过期时间，单位纳秒，小于等于0表示由看门狗续期
+     */
+    void onHeld(String lockName, LockHandle handle, long leaseNanos);
+
+    /**
+     * 锁已释放，与onHeld成对调用
+     *
+     * @param handle 锁句柄
+     */
+    void onReleased(LockHandle handle);
+}
@@ -0,0 +1,353 @@
+package com.chengzhx.distributionLocker.renewal;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.spi.LockBackend;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description: 锁的自动续期服务
+ * <p>
+ * 整个节点只有一个续期线程，而不是每把锁一个定时器。每一轮只续期距上次续期超过leaseTime/3的锁，
+ * 这些锁按batchSize分批，每批通过LockBackend.renewAll在一次pipeline中续期；
+ * 上一批返回后才发送下一批，一轮结束后才安排下一轮，Redis变慢时续期自然放缓而不会堆积请求。
+ * 每一轮的间隔带有随机抖动，避免多个节点同时续期
+ * <p>
+ * 续期返回false表示锁已经不被持有，标记为丢失并通知持有线程；
+ * 续期请求出错（例如Redis暂时不可用）时继续重试，直到距上次成功续期超过leaseTime才标记为丢失
+ *
+ * @author ChengZhenxing
+ */
+public class LeaseRenewalService implements AutoCloseable {
+
+    /**
+     * 当前线程最近登记的续期，供业务代码通过checkCurrentHeld主动检查
+     */
+    private static final ThreadLocal<Renewal> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 一个leaseTime内至少续期的次数
+     */
+    private static final int MIN_RENEWALS_PER_LEASE = 3;
+
+    private final LockBackend lockBackend;
+
+    private final Set<Renewal> renewals = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 续期间隔，单位纳秒
+     */
+    private final long intervalNanos;
+
+    /**
+     * 每批续期的最大数量
+     */
+    private final int batchSize;
+
+    /**
+     * 间隔的随机抖动比例，例如0.1表示间隔在±10%内浮动
+     */
+    private final double jitter;
+
+    /**
+     * 续期批次数，即续期产生的Redis往返次数
+     */
+    private final LongAdder batchCount = new LongAdder();
+
+    /**
+     * 续期成功的次数
+     */
+    private final LongAdder renewedCount = new LongAdder();
+
+    /**
+     * 续期失败导致锁丢失的次数
+     */
+    private final LongAdder lostCount = new LongAdder();
+
+    public LeaseRenewalService(LockBackend lockBackend, long intervalMillis) {
+        this(lockBackend, intervalMillis, 500, 0.1D);
+    }
+
+    /**
+     * @param lockBackend    锁后端
+     * @param intervalMillis 续期间隔，单位毫秒，锁的leaseTime至少是它的3倍
+     * @param batchSize      每批续期的最大数量
+     * @param jitter         间隔的随机抖动比例，0到1之间
+     */
+    public LeaseRenewalService(LockBackend lockBackend, long intervalMillis, int batchSize, double jitter) {
+        this.lockBackend = lockBackend;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.jitter = Math.max(0D, Math.min(1D, jitter));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("lock-lease-renewal", true));
+        scheduleNext();
+    }
+
+    /**
+     * 登记一把需要自动续期的锁，由持有锁的线程调用，方法结束后必须在同一线程调用Renewal.cancel
+     *
+     * @param handle             锁句柄
+     * @param leaseNanos         每次续期后的过期时间，单位纳秒
+     * @param interruptOnFailure 锁丢失时是否中断当前线程
+     * @return 续期登记
+     */
+    public Renewal register(LockHandle handle, long leaseNanos, boolean interruptOnFailure) {
+        checkLeaseTime(leaseNanos);
+        Renewal renewal = new Renewal(this, handle, leaseNanos, interruptOnFailure ? Thread.currentThread() : null, CURRENT.get());
+        CURRENT.set(renewal);
+        renewals.add(renewal);
+        return renewal;
+    }
+
+    /**
+     * 检查自动续期的leaseTime是否足够：至少是续期间隔的3倍，续期请求偶尔失败或延迟一轮时锁也不会过期
+     *
+     * @param leaseNanos 每次续期后的过期时间，单位纳秒
+     * @throws DistributionLockException leaseTime过短
+     */
+    public void checkLeaseTime(long leaseNanos) {
+        if (leaseNanos < intervalNanos * MIN_RENEWALS_PER_LEASE) {
+            throw new DistributionLockException("自动续期的leaseTime(" + TimeUnit.NANOSECONDS.toMillis(leaseNanos)
+                    + "ms)至少需要是续期间隔(" + TimeUnit.NANOSECONDS.toMillis(intervalNanos) + "ms)的"
+                    + MIN_RENEWALS_PER_LEASE + "倍");
+        }
+    }
+
+    /**
+     * 检查当前线程通过自动续期持有的锁是否仍然有效，长时间执行的方法可以在关键步骤之前调用
+     *
+     * @throws DistributionLockException 锁已丢失
+     */
+    public static void checkCurrentHeld() {
+        // 嵌套加锁时外层的锁也需要检查
+        for (Renewal renewal = CURRENT.get(); renewal != null; renewal = renewal.outer) {
+            renewal.checkHeld();
+        }
+    }
+
+    /**
+     * 当前登记的锁数量
+     *
+     * @return 锁数量
+     */
+    public int getActiveCount() {
+        return renewals.size();
+    }
+
+    public long getRenewedCount() {
+        return renewedCount.sum();
+    }
+
+    public long getLostCount() {
+        return lostCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void scheduleNext() {
+        long delay = intervalNanos;
+        if (jitter > 0D) {
+            delay += (long) (intervalNanos * jitter * (ThreadLocalRandom.current().nextDouble() * 2D - 1D));
+        }
+        try {
+            scheduler.schedule(this::tick, Math.max(1L, delay), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+        }
+    }
+
+    private void tick() {
+        try {
+            renewDue();
+        } catch (Throwable e) {
+            // 保证续期线程不会因为意外的异常停止
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    private void renewDue() {
+        long now = System.nanoTime();
+        List<Renewal> due = new ArrayList<>();
+        for (Renewal renewal : renewals) {
+            if (now - renewal.renewedAt >= renewal.renewAfterNanos) {
+                due.add(renewal);
+            }
+        }
+        for (int from = 0; from < due.size(); from += batchSize) {
+            renewBatch(due.subList(from, Math.min(from + batchSize, due.size())));
+        }
+    }
+
+    private void renewBatch(List<Renewal> batch) {
+        List<LockHandle> handles = new ArrayList<>(batch.size());
+        long[] leaseTimes = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            handles.add(batch.get(i).handle);
+            leaseTimes[i] = batch.get(i).leaseNanos;
+        }
+        // 以发送前的时间作为续期时间，偏保守
+        long now = System.nanoTime();
+        boolean[] renewed;
+        try {
+            batchCount.increment();
+            renewed = lockBackend.renewAll(handles, TimeUnit.NANOSECONDS, leaseTimes);
+        } catch (Throwable e) {
+            // 续期请求失败，锁在上次续期的leaseTime内仍然有效，下一轮重试
+            for (Renewal renewal : batch) {
+                if (now - renewal.renewedAt >= renewal.leaseNanos) {
+                    lose(renewal);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Renewal renewal = batch.get(i);
+            if (renewed[i]) {
+                renewal.renewedAt = now;
+                renewedCount.increment();
+            } else {
+                lose(renewal);
+            }
+        }
+    }
+
+    private void lose(Renewal renewal) {
+        if (renewal.markLost()) {
+            lostCount.increment();
+        }
+        renewals.remove(renewal);
+    }
+
+    /**
+     * 一把锁的续期登记
+     */
+    public static final class Renewal {
+
+        private static final int ACTIVE = 0;
+
+        private static final int LOST = 1;
+
+        private static final int CANCELLED = 2;
+
+        private final LeaseRenewalService service;
+
+        @Getter
+        private final LockHandle handle;
+
+        private final long leaseNanos;
+
+        /**
+         * 距上次续期超过该时间才需要再次续期，为leaseTime的1/3
+         */
+        private final long renewAfterNanos;
+
+        /**
+         * 锁丢失时需要中断的线程，不中断时为null
+         */
+        private final Thread owner;
+
+        /**
+         * 同一线程外层登记的续期，取消时恢复为当前续期
+         */
+        private final Renewal outer;
+
+        /**
+         * 上次续期成功的时间，只由续期线程写入
+         */
+        private volatile long renewedAt;
+
+        /**
+         * 状态只在synchronized中修改，保证锁丢失后的中断不会落到已经结束的方法之后
+         */
+        private int state = ACTIVE;
+
+        private Renewal(LeaseRenewalService service, LockHandle handle, long leaseNanos, Thread owner, Renewal outer) {
+            this.service = service;
+            this.handle = handle;
+            this.leaseNanos = leaseNanos;
+            this.renewAfterNanos = leaseNanos / 3;
+            this.owner = owner;
+            this.outer = outer;
+            this.renewedAt = handle.getAcquiredAt();
+        }
+
+        /**
+         * 锁是否已经丢失
+         *
+         * @return true-续期失败，锁可能已被其他持有者获取
+         */
+        public synchronized boolean isLost() {
+            return state == LOST;
+        }
+
+        /**
+         * 检查锁是否仍然被持有，供持有线程在长时间执行的过程中主动检查，锁丢失时尽早结束
+         *
+         * @throws DistributionLockException 锁已丢失
+         */
+        public void checkHeld() {
+            if (isLost()) {
+                throw new DistributionLockException("分布式锁续期失败，锁可能已被其他持有者获取");
+            }
+        }
+
+        /**
+         * 停止续期，在释放锁之前由加锁线程调用
+         * <p>
+         * 如果锁丢失时中断过当前线程，这里会清除中断标记，避免影响线程之后的任务
+         */
+        public void cancel() {
+            boolean interrupted;
+            synchronized (this) {
+                interrupted = state == LOST && owner != null;
+                if (state == ACTIVE) {
+                    state = CANCELLED;
+                }
+            }
+            service.renewals.remove(this);
+            if (CURRENT.get() == this) {
+                if (outer == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(outer);
+                }
+            }
+            if (interrupted) {
+                Thread.interrupted();
+            }
+        }
+
+        private synchronized boolean markLost() {
+            if (state != ACTIVE) {
+                return false;
+            }
+            state = LOST;
+            if (owner != null) {
+                owner.interrupt();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.chengzhx.distributionLocker.service;
+
+/**
+ * Description: 分布式限流，令牌桶限制速率，带过期时间的许可限制并发数，按块租用许可的信号量限制并发数
+ * <p>
+ * 状态保存在Redis中，令牌和并发许可的每次获取或释放都是一次脚本调用
+ *
+ * @author ChengZhenxing
+ */
+public interface DistributeLimiter {
+
+    /**
+     * 从令牌桶中获取令牌
+     * <p>
+     * 桶中令牌不少于minTokens时一次取走min(桶中令牌, maxTokens)个，调用方可以把多取的令牌留在本地使用；
+     * 令牌不足时按补足所需的时间等待，补足所需的时间超过剩余等待时间时直接返回
+     *
+     * @param limitKey     限流的key
+     * @param rate         每个周期生成的令牌数
+     * @param periodMillis 周期，单位毫秒
+     * @param capacity     桶的容量，即允许的突发数量
+     * @param minTokens    至少获取的令牌数
+     * @param maxTokens    最多获取的令牌数
+     * @param waitMillis   等待时间，单位毫秒
+     * @return 获取到的令牌数，获取失败返回0
+     */
+    long tryAcquireTokens(String limitKey, long rate, long periodMillis, long capacity, long minTokens, long maxTokens,
+                          long waitMillis);
+
+    /**
+     * 获取一个并发许可
+     * <p>
+     * 许可带有过期时间，持有许可的节点宕机后许可在过期后自动归还
+     *
+     * @param limitKey    限流的key
+     * @param permits     许可总数
+     * @param leaseMillis 许可的过期时间，单位毫秒
+     * @param waitMillis  等待时间，单位毫秒
+     * @return 许可id，获取失败返回null
+     */
+    String tryAcquirePermit(String limitKey, int permits, long leaseMillis, long waitMillis);
+
+    /**
+     * 归还并发许可
+     *
+     * @param limitKey 限流的key
+     * @param permitId tryAcquirePermit返回的许可id
+     * @return true-归还成功 false-许可已过期
+     */
+    boolean releasePermit(String limitKey, String permitId);
+
+    /**
+     * 获取按块租用许可的信号量，同一个名称在本节点只创建一次
+     * <p>
+     * 与getSemaphore返回的RSemaphore不同，acquire/release大多只修改本地计数，
+     * 适合许可数较多、调用频繁的场景；所有节点需要使用相同的许可数
+     *
+     * @param name    信号量的名称
+     * @param permits 全局许可数
+     * @return DistributeSemaphore
+     */
+    DistributeSemaphore getChunkedSemaphore(String name, int permits);
+}
@@ -2,7 +2,12 @@ package com.chengzhx.distributionLocker.service;
 
 import org.redisson.api.*;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Description:
@@ -52,16 +57,64 @@ public interface DistributeLocker {
     RCountDownLatch getCountDownLatch(String lockKey);
 
     /**
-     * 尝试获取锁
+     * 异步尝试获取锁，立即返回，不会阻塞调用线程
+     * <p>
+     * 锁的持有者是调用线程，需要在同一线程中释放；跨线程释放请使用带ownerId的重载
      *
      * @param lockKey   锁的key
      * @param waitTime  等待时间
      * @param leaseTime 锁的过期时间
      * @param timeUnit  时间单位
      * @return true-获取成功 false-获取失败
-     * @throws InterruptedException 中断异常
      */
-    RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit) throws InterruptedException;
+    RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit);
+
+    /**
+     * 异步尝试获取锁，锁的持有者为指定的ownerId而不是当前线程
+     *
+     * @param lockKey   锁的key
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @param timeUnit  时间单位
+     * @param ownerId   持有者id，释放时需要传入相同的值，可以通过RedissonLockUtil.newAsyncOwnerId生成
+     * @return true-获取成功 false-获取失败
+     */
+    RFuture<Boolean> tryLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, long ownerId);
+
+    /**
+     * 异步释放锁
+     *
+     * @param lockKey 锁的key
+     * @param ownerId 获取锁时使用的持有者id
+     * @return 释放结果，锁已不被该持有者持有时以IllegalMonitorStateException失败
+     */
+    RFuture<Void> unLockAsync(String lockKey, long ownerId);
+
+    /**
+     * 异步查询锁是否被任意一个线程锁持有
+     * <p>
+     * 只读查询，哨兵、主从、集群模式下按redisson.readMode发往从节点，结果可能落后于主节点
+     *
+     * @param lockKey 锁的key
+     * @return true-被锁 false-未被锁
+     */
+    RFuture<Boolean> isLockedAsync(String lockKey);
+
+    /**
+     * 异步获取锁后执行action，action返回的CompletionStage完成（无论成功还是失败）后异步释放锁
+     * <p>
+     * 获取锁失败时返回的CompletionStage以DistributionLockException失败；
+     * 释放锁失败（例如持有时间已过期）不会影响action的结果
+     *
+     * @param lockKey   锁的key
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @param timeUnit  时间单位
+     * @param action    持有锁期间执行的异步操作
+     * @param <T>       结果类型
+     * @return action的结果
+     */
+    <T> CompletionStage<T> withLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<CompletionStage<T>> action);
 
     /**
      * 释放锁
@@ -117,8 +170,162 @@ public interface DistributeLocker {
      */
     boolean tryLock(String lockKey, TimeUnit timeUnit, int waitTime, int leaseTime);
 
+    /**
+     * 尝试获取锁，成功时返回已持有的锁，调用方直接用它来释放，无需再次查询
+     *
+     * @param lockKey   锁的key
+     * @param timeUnit  时间单位
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @return 获取成功返回持有的RLock，获取失败返回null
+     */
+    RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime);
+
+    /**
+     * 按指定的等待方式尝试获取锁，成功时返回已持有的锁
+     *
+     * @param lockKey      锁的key
+     * @param timeUnit     时间单位
+     * @param waitTime     等待时间
+     * @param leaseTime    锁的过期时间
+     * @param waitStrategy 等待方式
+     * @return 获取成功返回持有的RLock，获取失败返回null
+     */
+    RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy);
+
+    /**
+     * 释放当前线程持有的锁
+     * <p>
+     * 只发起一次带持有者校验的解锁请求，不需要提前调用isLocked/isHeldByCurrentThread
+     *
+     * @param lock 通过tryAcquire获取的锁
+     * @return true-释放成功 false-锁已经不被当前线程持有（例如持有时间已过期）
+     */
+    boolean release(RLock lock);
+
+    /**
+     * 按指定的等待方式获取任意RLock（读锁、写锁、公平锁等），持有者由ownerId指定
+     *
+     * @param lock         getReadWriteLock、getFairLock等返回的锁
+     * @param ownerId      持有者id，释放时需要传入相同的值
+     * @param timeUnit     时间单位
+     * @param waitTime     等待时间
+     * @param leaseTime    锁的过期时间，小于等于0时由看门狗续期
+     * @param waitStrategy 等待方式
+     * @return true-获取成功 false-获取失败
+     */
+    boolean tryLock(RLock lock, long ownerId, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy);
+
+    /**
+     * 释放ownerId持有的RLock
+     *
+     * @param lock    通过tryLock获取的锁
+     * @param ownerId 获取锁时使用的持有者id
+     * @return true-释放成功 false-锁已经不被该持有者持有
+     */
+    boolean unlock(RLock lock, long ownerId);
+
+    /**
+     * 同时获取多把锁，全部获取成功才算成功，任何一把获取失败都不会持有其中任何一把
+     * <p>
+     * 所有key在一次Redis脚本调用中按固定顺序检查并加锁，锁的持有者为当前线程，
+     * 可以用RLock.unlock单独释放，也可以用unlockAll一次释放；
+     * 集群模式下所有key需要位于同一个hash slot（例如使用相同的hash tag）
+     *
+     * @param lockKeys  锁的key集合
+     * @param timeUnit  时间单位
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @return true-获取成功 false-获取失败
+     */
+    boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime);
+
+    /**
+     * 按指定的等待方式同时获取多把锁，多key加锁没有释放通知，PUBSUB按占用者的剩余过期时间重试
+     *
+     * @param lockKeys     锁的key集合
+     * @param timeUnit     时间单位
+     * @param waitTime     等待时间
+     * @param leaseTime    锁的过期时间
+     * @param waitStrategy 等待方式
+     * @return true-获取成功 false-获取失败
+     */
+    boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy);
+
+    /**
+     * 同时获取多把锁，持有者由ownerId指定，释放时使用unlockAll(lockKeys, ownerId)，可以在任意线程释放
+     *
+     * @param lockKeys     锁的key集合
+     * @param timeUnit     时间单位
+     * @param waitTime     等待时间
+     * @param leaseTime    锁的过期时间
+     * @param waitStrategy 等待方式
+     * @param ownerId      持有者id
+     * @return true-获取成功 false-获取失败
+     */
+    boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy,
+                       long ownerId);
+
+    /**
+     * 与tryLockAll相同，同时为每个key生成fencing token
+     * <p>
+     * token由加锁脚本在同一次Redis调用中对key对应的计数器执行incr得到，同一个key的token单调递增，
+     * 下游存储只接受不小于已见过的最大token的写入，即可拒绝锁过期后仍在执行的旧持有者；
+     * 释放方式与tryLockAll相同
+     *
+     * @param lockKeys     锁的key集合，单key加锁时只有一个元素
+     * @param timeUnit     时间单位
+     * @param waitTime     等待时间
+     * @param leaseTime    锁的过期时间
+     * @param waitStrategy 等待方式
+     * @param ownerId      持有者id，同步加锁时为当前线程的id
+     * @return 获取成功时返回key到token的映射（按key排序），获取失败返回null
+     */
+    Map<String, Long> tryLockFenced(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                                    WaitStrategy waitStrategy, long ownerId);
+
+    /**
+     * 一次释放当前线程持有的多把锁
+     *
+     * @param lockKeys 锁的key集合
+     * @return true-全部释放成功 false-部分锁已经不被当前线程持有（例如持有时间已过期）
+     */
+    boolean unlockAll(Collection<String> lockKeys);
+
+    /**
+     * 一次释放指定持有者持有的多把锁，可以在任意线程调用
+     *
+     * @param lockKeys 锁的key集合
+     * @param ownerId  获取锁时使用的持有者id
+     * @return true-全部释放成功 false-部分锁已经不被该持有者持有
+     */
+    boolean unlockAll(Collection<String> lockKeys, long ownerId);
+
+    /**
+     * 把指定持有者持有的锁的过期时间重新设置为leaseTime，用于续期，可以在任意线程调用
+     * <p>
+     * 所有key在一次Redis脚本调用中检查，只要有一把已经不被该持有者持有就不续期任何一把
+     *
+     * @param lockKeys  锁的key集合
+     * @param ownerId   持有者id，同步加锁时为加锁线程的id
+     * @param timeUnit  时间单位
+     * @param leaseTime 新的过期时间
+     * @return true-续期成功 false-部分锁已经不被该持有者持有
+     */
+    boolean renew(Collection<String> lockKeys, long ownerId, TimeUnit timeUnit, long leaseTime);
+
+    /**
+     * 批量续期，所有续期请求通过一次pipeline发送，每个请求的语义与renew相同
+     *
+     * @param extensions 续期请求
+     * @return 与extensions顺序一致，true-续期成功 false-部分锁已经不被该持有者持有
+     */
+    boolean[] renewAll(List<LeaseExtension> extensions);
+
     /**
      * 锁是否被任意一个线程锁持有
+     * <p>
+     * 只读查询，哨兵、主从、集群模式下按redisson.readMode发往从节点，结果可能落后于主节点
      *
      * @param lockKey 锁的key
      * @return true-被锁 false-未被锁
@@ -132,4 +339,13 @@ public interface DistributeLocker {
      * @return true-被锁 false-未被锁
      */
     boolean isHeldByCurrentThread(String lockKey);
+
+    /**
+     * 查询锁是否被指定的持有者持有，持有者与线程无关时（例如LockOwner）使用
+     *
+     * @param lockKey 锁的key
+     * @param ownerId 持有者id
+     * @return true-被该持有者持有 false-未被该持有者持有
+     */
+    boolean isHeldBy(String lockKey, long ownerId);
 }
@@ -0,0 +1,42 @@
+package com.chengzhx.distributionLocker.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 按块向Redis租用许可的分布式信号量
+ * <p>
+ * 每个节点一次从Redis租用一块许可，之后的acquire/release只修改本地计数；
+ * 空闲超时或关闭时把未使用的许可归还Redis，所有节点租用的许可总数不超过全局许可数
+ *
+ * @author ChengZhenxing
+ */
+public interface DistributeSemaphore {
+
+    /**
+     * 获取一个许可，本地没有空闲许可时向Redis租用一块
+     *
+     * @param waitTime 等待时间
+     * @param timeUnit 时间单位
+     * @return true-获取成功 false-等待超时或被中断
+     */
+    boolean tryAcquire(long waitTime, TimeUnit timeUnit);
+
+    /**
+     * 归还一个许可到本节点，由本节点之后的acquire复用
+     */
+    void release();
+
+    /**
+     * 本节点空闲的许可数
+     *
+     * @return 空闲的许可数
+     */
+    int getLocalAvailablePermits();
+
+    /**
+     * 本节点向Redis租用的许可数，包括正在使用和空闲的许可
+     *
+     * @return 租用的许可数
+     */
+    int getLeasedPermits();
+}
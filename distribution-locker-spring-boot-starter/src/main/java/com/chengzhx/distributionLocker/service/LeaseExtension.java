@@ -0,0 +1,35 @@
+package com.chengzhx.distributionLocker.service;
+
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * Description: 一次续期请求，用于批量续期
+ *
+ * @author ChengZhenxing
+ */
+@Getter
+public final class LeaseExtension {
+
+    /**
+     * 锁的key集合，同一个持有者一次获取的多把锁放在一起续期
+     */
+    private final Collection<String> lockKeys;
+
+    /**
+     * 持有者id，同步加锁时为加锁线程的id
+     */
+    private final long ownerId;
+
+    /**
+     * 新的过期时间，单位毫秒
+     */
+    private final long leaseMillis;
+
+    public LeaseExtension(Collection<String> lockKeys, long ownerId, long leaseMillis) {
+        this.lockKeys = lockKeys;
+        this.ownerId = ownerId;
+        this.leaseMillis = leaseMillis;
+    }
+}
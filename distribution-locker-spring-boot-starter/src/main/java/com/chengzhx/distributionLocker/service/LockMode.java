@@ -0,0 +1,30 @@
+package com.chengzhx.distributionLocker.service;
+
+/**
+ * Description: 锁的模式
+ *
+ * @author ChengZhenxing
+ */
+public enum LockMode {
+
+    /**
+     * 互斥锁
+     */
+    EXCLUSIVE,
+
+    /**
+     * 读写锁的读锁，读锁之间不互斥；同一节点上同一个key的并发读者共享一次Redis读锁，
+     * 由看门狗续期，最后一个读者结束时释放
+     */
+    READ,
+
+    /**
+     * 读写锁的写锁，与读锁、其他写锁互斥
+     */
+    WRITE,
+
+    /**
+     * 公平锁，按请求的先后顺序获取
+     */
+    FAIR
+}
@@ -0,0 +1,76 @@
+package com.chengzhx.distributionLocker.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Description: 响应式分布式锁
+ * <p>
+ * 锁的持有者由ownerId标识而不是线程，适用于WebFlux等不能阻塞事件循环线程的场景
+ *
+ * @author ChengZhenxing
+ */
+public interface ReactiveDistributeLocker {
+
+    /**
+     * 尝试获取锁
+     *
+     * @param lockKey   锁的key
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @param timeUnit  时间单位
+     * @param ownerId   持有者id，释放时需要传入相同的值
+     * @return true-获取成功 false-获取失败
+     */
+    Mono<Boolean> tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, long ownerId);
+
+    /**
+     * 释放锁
+     *
+     * @param lockKey 锁的key
+     * @param ownerId 获取锁时使用的持有者id
+     * @return 释放结果
+     */
+    Mono<Void> unLock(String lockKey, long ownerId);
+
+    /**
+     * 锁是否被任意一个持有者持有
+     *
+     * @param lockKey 锁的key
+     * @return true-被锁 false-未被锁
+     */
+    Mono<Boolean> isLocked(String lockKey);
+
+    /**
+     * 获取锁后订阅action返回的Mono，Mono完成、出错或被取消时释放锁
+     * <p>
+     * 获取锁失败时以DistributionLockException结束
+     *
+     * @param lockKey   锁的key
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @param timeUnit  时间单位
+     * @param action    持有锁期间执行的操作
+     * @param <T>       结果类型
+     * @return action的结果
+     */
+    <T> Mono<T> withLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<? extends Mono<T>> action);
+
+    /**
+     * 获取锁后订阅action返回的Flux，Flux完成、出错或被取消时释放锁
+     * <p>
+     * 获取锁失败时以DistributionLockException结束
+     *
+     * @param lockKey   锁的key
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @param timeUnit  时间单位
+     * @param action    持有锁期间执行的操作
+     * @param <T>       元素类型
+     * @return action的结果
+     */
+    <T> Flux<T> withLockMany(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<? extends Flux<T>> action);
+}
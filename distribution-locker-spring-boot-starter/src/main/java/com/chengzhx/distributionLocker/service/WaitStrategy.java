@@ -0,0 +1,30 @@
+package com.chengzhx.distributionLocker.service;
+
+/**
+ * Description: 获取锁时的等待方式
+ *
+ * @author ChengZhenxing
+ */
+public enum WaitStrategy {
+
+    /**
+     * 订阅锁的释放通知，收到通知或过期后再重试（Redisson的默认方式），适合等待时间较长的场景
+     */
+    PUBSUB,
+
+    /**
+     * 不订阅，按指数退避加随机抖动的间隔重试，重试间隔从几毫秒开始翻倍，不超过上限，
+     * 大量线程争用同一把锁时避免释放通知引起的集中重试
+     */
+    BACKOFF,
+
+    /**
+     * 先立即重试几次，锁很快释放时不需要订阅；仍未获取成功时再订阅释放通知等待剩余时间
+     */
+    SPIN_THEN_PARK,
+
+    /**
+     * 只尝试一次，获取失败立即返回，忽略等待时间
+     */
+    FAIL_FAST
+}
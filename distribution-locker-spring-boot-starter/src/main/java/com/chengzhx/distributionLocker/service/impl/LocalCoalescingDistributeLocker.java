@@ -0,0 +1,622 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import com.chengzhx.distributionLocker.service.DistributeLocker;
+import com.chengzhx.distributionLocker.service.LeaseExtension;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.util.RedissonLockUtil;
+import org.redisson.api.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Description: 两级分布式锁，在Redis锁前面加一层JVM内的本地锁
+ * <p>
+ * 同一个key在一个JVM内只有一个线程去竞争Redis锁，其余线程在本地锁上排队等待，
+ * 避免大量线程同时通过Redisson的pub/sub等待同一个key，降低Redis的命令数和订阅数。
+ * Redis锁的持有者是本地槽位（slot）而不是线程，本地锁保证同一时刻只有一个线程使用它
+ * <p>
+ * 开启交接（handoff）模式后，持有Redis锁的线程释放时如果本地还有等待线程，
+ * 不释放Redis锁而是直接交给下一个本地线程，省去一次释放和一次获取的往返；
+ * 连续交接次数和时间片都有上限，到达上限后必须归还Redis锁，保证其他节点的公平性
+ *
+ * @author ChengZhenxing
+ */
+public class LocalCoalescingDistributeLocker implements DistributeLocker {
+
+    private final DistributeLocker delegate;
+
+    /**
+     * 本地锁是否公平
+     */
+    private final boolean fair;
+
+    /**
+     * 是否开启交接模式
+     */
+    private final boolean handoff;
+
+    /**
+     * 一次Redis持有期间最多交接的次数
+     */
+    private final int maxHandoffs;
+
+    /**
+     * 一次Redis持有期间允许交接的时间片，单位纳秒
+     */
+    private final long handoffTimeSliceNanos;
+
+    /**
+     * 通过交接省去的Redis获取次数
+     */
+    private final LongAdder handoffCount = new LongAdder();
+
+    /**
+     * 实际向Redis获取锁成功的次数
+     */
+    private final LongAdder remoteAcquireCount = new LongAdder();
+
+    /**
+     * 实际向Redis释放锁的次数
+     */
+    private final LongAdder remoteReleaseCount = new LongAdder();
+
+    /**
+     * key -> 本地槽位，没有线程使用时移除
+     */
+    private final ConcurrentMap<String, LocalSlot> slots = new ConcurrentHashMap<>();
+
+    // 构造函数
+    public LocalCoalescingDistributeLocker(DistributeLocker delegate, boolean fair) {
+        this(delegate, fair, false, 0, 0L);
+    }
+
+    /**
+     * @param delegate               Redis分布式锁
+     * @param fair                   本地锁是否公平
+     * @param handoff                是否开启交接模式
+     * @param maxHandoffs            一次Redis持有期间最多交接的次数
+     * @param handoffTimeSliceMillis 一次Redis持有期间允许交接的时间片，单位毫秒
+     */
+    public LocalCoalescingDistributeLocker(DistributeLocker delegate, boolean fair, boolean handoff,
+                                           int maxHandoffs, long handoffTimeSliceMillis) {
+        this.delegate = delegate;
+        this.fair = fair;
+        this.handoff = handoff;
+        this.maxHandoffs = maxHandoffs;
+        this.handoffTimeSliceNanos = TimeUnit.MILLISECONDS.toNanos(handoffTimeSliceMillis);
+    }
+
+    @Override
+    public RLock getLock(String lockKey) {
+        return delegate.getLock(lockKey);
+    }
+
+    @Override
+    public RLock getFairLock(String lockKey) {
+        return delegate.getFairLock(lockKey);
+    }
+
+    @Override
+    public RReadWriteLock getReadWriteLock(String lockKey) {
+        return delegate.getReadWriteLock(lockKey);
+    }
+
+    @Override
+    public RSemaphore getSemaphore(String lockKey) {
+        return delegate.getSemaphore(lockKey);
+    }
+
+    @Override
+    public RCountDownLatch getCountDownLatch(String lockKey) {
+        return delegate.getCountDownLatch(lockKey);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit) {
+        return delegate.tryLockAsync(lockKey, waitTime, leaseTime, timeUnit);
+    }
+
+    @Override
+    public RFuture<Boolean> tryLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, long ownerId) {
+        return delegate.tryLockAsync(lockKey, waitTime, leaseTime, timeUnit, ownerId);
+    }
+
+    @Override
+    public RFuture<Void> unLockAsync(String lockKey, long ownerId) {
+        return delegate.unLockAsync(lockKey, ownerId);
+    }
+
+    @Override
+    public RFuture<Boolean> isLockedAsync(String lockKey) {
+        return delegate.isLockedAsync(lockKey);
+    }
+
+    @Override
+    public <T> CompletionStage<T> withLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit,
+                                                Supplier<CompletionStage<T>> action) {
+        return delegate.withLockAsync(lockKey, waitTime, leaseTime, timeUnit, action);
+    }
+
+    @Override
+    public void unLock(String lockKey) {
+        LocalSlot slot = slots.get(lockKey);
+        if (slot == null || !slot.localLock.isHeldByCurrentThread()) {
+            delegate.unLock(lockKey);
+            return;
+        }
+        if (!release(lockKey, slot)) {
+            throw new IllegalMonitorStateException("lock [" + lockKey + "] is not held by current node");
+        }
+    }
+
+    @Override
+    public void unLock(RLock lock) {
+        unLock(lock.getName());
+    }
+
+    @Override
+    public RLock lock(String lockKey, int timeout) {
+        return lock(lockKey, TimeUnit.SECONDS, timeout);
+    }
+
+    @Override
+    public RLock lock(String lockKey, TimeUnit timeUnit, int timeout) {
+        LocalSlot slot = retain(lockKey);
+        enterQueue(slot);
+        slot.localLock.lock();
+        boolean handedOff = leaveQueue(slot, true);
+        try {
+            if (slot.localLock.getHoldCount() == 1 && !(handedOff && inherit(slot, timeout, timeUnit))) {
+                slot.remoteLock.lockAsync(timeout, timeUnit, slot.ownerId).toCompletableFuture().join();
+                markAcquired(slot, timeout, timeUnit);
+            }
+        } catch (RuntimeException e) {
+            slot.localLock.unlock();
+            releaseSlot(lockKey, slot);
+            throw e;
+        }
+        return slot.remoteLock;
+    }
+
+    @Override
+    public boolean tryLock(String lockKey, int waitTime, int leaseTime) {
+        return tryAcquire(lockKey, TimeUnit.SECONDS, waitTime, leaseTime) != null;
+    }
+
+    @Override
+    public boolean tryLock(String lockKey, TimeUnit timeUnit, int waitTime, int leaseTime) {
+        return tryAcquire(lockKey, timeUnit, waitTime, leaseTime) != null;
+    }
+
+    @Override
+    public RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return tryAcquire(lockKey, timeUnit, waitTime, leaseTime, WaitStrategy.PUBSUB);
+    }
+
+    @Override
+    public RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy) {
+        long deadline = System.nanoTime() + timeUnit.toNanos(waitTime);
+        LocalSlot slot = retain(lockKey);
+        boolean locked;
+        enterQueue(slot);
+        try {
+            // 先在本地排队，只有拿到本地锁的线程才去竞争Redis锁
+            locked = waitStrategy == WaitStrategy.FAIL_FAST ? slot.localLock.tryLock() : slot.localLock.tryLock(waitTime, timeUnit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        boolean handedOff = leaveQueue(slot, locked);
+        if (!locked) {
+            releaseSlot(lockKey, slot);
+            return null;
+        }
+        boolean acquired;
+        try {
+            // 本地重入或者接手了上一个本地线程交接的Redis锁时无需重新获取
+            acquired = slot.localLock.getHoldCount() > 1 || (handedOff && inherit(slot, leaseTime, timeUnit))
+                    || tryAcquireRemote(slot, Math.max(0L, deadline - System.nanoTime()), leaseTime, timeUnit, waitStrategy);
+        } catch (RuntimeException e) {
+            slot.localLock.unlock();
+            releaseSlot(lockKey, slot);
+            throw e;
+        }
+        if (!acquired) {
+            slot.localLock.unlock();
+            releaseSlot(lockKey, slot);
+            return null;
+        }
+        return slot.remoteLock;
+    }
+
+    @Override
+    public boolean release(RLock lock) {
+        String lockKey = lock.getName();
+        LocalSlot slot = slots.get(lockKey);
+        if (slot == null || !slot.localLock.isHeldByCurrentThread()) {
+            return delegate.release(lock);
+        }
+        return release(lockKey, slot);
+    }
+
+    @Override
+    public boolean tryLock(RLock lock, long ownerId, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy) {
+        return delegate.tryLock(lock, ownerId, timeUnit, waitTime, leaseTime, waitStrategy);
+    }
+
+    @Override
+    public boolean unlock(RLock lock, long ownerId) {
+        return delegate.unlock(lock, ownerId);
+    }
+
+    @Override
+    public boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return delegate.tryLockAll(lockKeys, timeUnit, waitTime, leaseTime);
+    }
+
+    @Override
+    public boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                              WaitStrategy waitStrategy) {
+        return delegate.tryLockAll(lockKeys, timeUnit, waitTime, leaseTime, waitStrategy);
+    }
+
+    @Override
+    public boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                              WaitStrategy waitStrategy, long ownerId) {
+        return delegate.tryLockAll(lockKeys, timeUnit, waitTime, leaseTime, waitStrategy, ownerId);
+    }
+
+    @Override
+    public Map<String, Long> tryLockFenced(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                                           WaitStrategy waitStrategy, long ownerId) {
+        // 每个持有者都需要自己的token，不参与本地合并
+        return delegate.tryLockFenced(lockKeys, timeUnit, waitTime, leaseTime, waitStrategy, ownerId);
+    }
+
+    @Override
+    public boolean unlockAll(Collection<String> lockKeys) {
+        return delegate.unlockAll(lockKeys);
+    }
+
+    @Override
+    public boolean unlockAll(Collection<String> lockKeys, long ownerId) {
+        return delegate.unlockAll(lockKeys, ownerId);
+    }
+
+    @Override
+    public boolean renew(Collection<String> lockKeys, long ownerId, TimeUnit timeUnit, long leaseTime) {
+        return delegate.renew(lockKeys, remoteOwnerId(lockKeys, ownerId), timeUnit, leaseTime);
+    }
+
+    /**
+     * Redis锁的实际持有者：单key的锁由本地槽位持有，持有者是槽位的ownerId而不是线程；多key的锁直接由线程持有
+     */
+    private long remoteOwnerId(Collection<String> lockKeys, long ownerId) {
+        if (lockKeys.size() == 1) {
+            LocalSlot slot = slots.get(lockKeys.iterator().next());
+            if (slot != null && slot.remoteHeld) {
+                return slot.ownerId;
+            }
+        }
+        return ownerId;
+    }
+
+    @Override
+    public boolean[] renewAll(List<LeaseExtension> extensions) {
+        List<LeaseExtension> delegated = new ArrayList<>(extensions.size());
+        for (LeaseExtension extension : extensions) {
+            delegated.add(new LeaseExtension(extension.getLockKeys(), remoteOwnerId(extension.getLockKeys(), extension.getOwnerId()),
+                    extension.getLeaseMillis()));
+        }
+        return delegate.renewAll(delegated);
+    }
+
+    @Override
+    public boolean isLocked(String lockKey) {
+        return delegate.isLocked(lockKey);
+    }
+
+    @Override
+    public boolean isHeldByCurrentThread(String lockKey) {
+        LocalSlot slot = slots.get(lockKey);
+        if (slot != null && slot.localLock.isHeldByCurrentThread()) {
+            return true;
+        }
+        return delegate.isHeldByCurrentThread(lockKey);
+    }
+
+    @Override
+    public boolean isHeldBy(String lockKey, long ownerId) {
+        return delegate.isHeldBy(lockKey, ownerId);
+    }
+
+    /**
+     * 当前在本地排队等待某个key的线程数
+     *
+     * @param lockKey 锁的key
+     * @return 等待线程数
+     */
+    public int getLocalWaiters(String lockKey) {
+        LocalSlot slot = slots.get(lockKey);
+        return slot == null ? 0 : slot.localLock.getQueueLength();
+    }
+
+    /**
+     * 通过交接省去的Redis获取次数
+     *
+     * @return 交接次数
+     */
+    public long getHandoffCount() {
+        return handoffCount.sum();
+    }
+
+    /**
+     * 实际向Redis获取锁成功的次数
+     *
+     * @return 获取次数
+     */
+    public long getRemoteAcquireCount() {
+        return remoteAcquireCount.sum();
+    }
+
+    /**
+     * 实际向Redis释放锁的次数
+     *
+     * @return 释放次数
+     */
+    public long getRemoteReleaseCount() {
+        return remoteReleaseCount.sum();
+    }
+
+    /**
+     * 开始在本地锁上排队
+     */
+    private static void enterQueue(LocalSlot slot) {
+        slot.stateLock.lock();
+        try {
+            slot.waiters++;
+        } finally {
+            slot.stateLock.unlock();
+        }
+    }
+
+    /**
+     * 结束排队：拿到本地锁时接手交接过来的Redis锁；没拿到本地锁并且是最后一个排队者时，
+     * 由它归还交接过来的Redis锁，保证交接出去的Redis锁总有人接手或归还
+     *
+     * @param locked 是否拿到了本地锁
+     * @return true-拿到了本地锁，并且上一个持有者把Redis锁交接给了本地
+     */
+    private boolean leaveQueue(LocalSlot slot, boolean locked) {
+        slot.stateLock.lock();
+        try {
+            slot.waiters--;
+            if (!slot.handedOff) {
+                return false;
+            }
+            if (locked) {
+                slot.handedOff = false;
+                return true;
+            }
+            if (slot.waiters == 0) {
+                // 没有线程会再接手，交接状态在stateLock内清除，之后拿到本地锁的线程会重新获取Redis锁
+                slot.handedOff = false;
+                releaseRemote(slot);
+            }
+            return false;
+        } finally {
+            slot.stateLock.unlock();
+        }
+    }
+
+    /**
+     * 接手交接过来的Redis锁，调用线程必须已经持有本地锁
+     * <p>
+     * 剩余的持有时间不足本次请求的leaseTime时，用一次带持有者校验的续期把过期时间延长到完整的leaseTime；
+     * 请求看门狗续期而交接来的锁是固定过期时间时不能接手，先归还Redis锁再重新获取
+     *
+     * @return true-接手成功，无需重新获取Redis锁
+     */
+    private boolean inherit(LocalSlot slot, long leaseTime, TimeUnit timeUnit) {
+        if (!slot.remoteHeld) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (leaseTime > 0) {
+            if (slot.remoteDeadline - now < timeUnit.toNanos(leaseTime)) {
+                boolean renewed;
+                try {
+                    renewed = delegate.renew(Collections.singletonList(slot.remoteLock.getName()), slot.ownerId, timeUnit, leaseTime);
+                } catch (RuntimeException e) {
+                    releaseRemote(slot);
+                    throw e;
+                }
+                if (!renewed) {
+                    // 交接期间Redis锁已过期
+                    slot.remoteHeld = false;
+                    return false;
+                }
+                slot.remoteDeadline = now + timeUnit.toNanos(leaseTime);
+            }
+        } else if (slot.remoteDeadline != Long.MAX_VALUE) {
+            releaseRemote(slot);
+            return false;
+        }
+        handoffCount.increment();
+        return true;
+    }
+
+    /**
+     * 记录槽位成功获取了Redis锁
+     */
+    private void markAcquired(LocalSlot slot, long leaseTime, TimeUnit timeUnit) {
+        long now = System.nanoTime();
+        slot.remoteHeld = true;
+        slot.remoteAcquiredAt = now;
+        slot.remoteDeadline = leaseTime > 0 ? now + timeUnit.toNanos(leaseTime) : Long.MAX_VALUE;
+        slot.handoffs = 0;
+        remoteAcquireCount.increment();
+    }
+
+    /**
+     * 是否把Redis锁交给下一个本地等待线程，调用线程必须持有本地锁和stateLock
+     */
+    private boolean shouldHandoff(LocalSlot slot) {
+        if (!handoff || slot.waiters == 0 || slot.handoffs >= maxHandoffs) {
+            return false;
+        }
+        long now = System.nanoTime();
+        return now - slot.remoteAcquiredAt < handoffTimeSliceNanos && now < slot.remoteDeadline;
+    }
+
+    /**
+     * 竞争Redis锁，持有者为槽位的ownerId
+     */
+    private boolean tryAcquireRemote(LocalSlot slot, long waitNanos, long leaseTime, TimeUnit timeUnit, WaitStrategy waitStrategy) {
+        if (WaitStrategySupport.tryLock(slot.remoteLock, slot.ownerId, waitNanos, leaseTime, timeUnit, waitStrategy)) {
+            markAcquired(slot, leaseTime, timeUnit);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 释放当前线程在槽位上的一次持有，最后一次持有时释放Redis锁
+     *
+     * @return false-Redis锁在释放前已过期
+     */
+    private boolean release(String lockKey, LocalSlot slot) {
+        boolean released = true;
+        try {
+            if (slot.localLock.getHoldCount() == 1) {
+                boolean handedOff = false;
+                slot.stateLock.lock();
+                try {
+                    if (shouldHandoff(slot)) {
+                        // 保留Redis锁，下一个本地线程拿到本地锁后直接接手；排队者全部超时时由最后一个归还
+                        slot.handoffs++;
+                        slot.handedOff = true;
+                        handedOff = true;
+                    }
+                } finally {
+                    slot.stateLock.unlock();
+                }
+                if (!handedOff) {
+                    released = releaseRemote(slot);
+                }
+            }
+        } finally {
+            slot.localLock.unlock();
+            releaseSlot(lockKey, slot);
+        }
+        return released;
+    }
+
+    private boolean releaseRemote(LocalSlot slot) {
+        slot.remoteHeld = false;
+        try {
+            slot.remoteLock.unlockAsync(slot.ownerId).toCompletableFuture().join();
+            remoteReleaseCount.increment();
+            return true;
+        } catch (RuntimeException e) {
+            // 持有时间已过期，锁已不属于本槽位
+            return false;
+        }
+    }
+
+    /**
+     * 引用槽位，不存在时创建
+     */
+    private LocalSlot retain(String lockKey) {
+        return slots.compute(lockKey, (key, slot) -> {
+            LocalSlot current = slot == null ? new LocalSlot(delegate.getLock(key), fair) : slot;
+            current.references++;
+            return current;
+        });
+    }
+
+    /**
+     * 取消对槽位的引用，没有线程引用时移除
+     */
+    private void releaseSlot(String lockKey, LocalSlot slot) {
+        slots.computeIfPresent(lockKey, (key, current) -> {
+            if (current != slot) {
+                return current;
+            }
+            return --current.references == 0 ? null : current;
+        });
+    }
+
+    /**
+     * 本地槽位：一个key在本JVM内的排队点和Redis锁持有者
+     */
+    private static final class LocalSlot {
+
+        private final RLock remoteLock;
+
+        private final ReentrantLock localLock;
+
+        /**
+         * Redis锁的持有者id，与线程无关
+         */
+        private final long ownerId = RedissonLockUtil.newAsyncOwnerId();
+
+        /**
+         * 槽位当前是否持有Redis锁，续期线程也会读取
+         */
+        private volatile boolean remoteHeld;
+
+        /**
+         * 以下状态只由持有本地锁的线程读写
+         * <p>
+         * 本次Redis持有开始的时间
+         */
+        private long remoteAcquiredAt;
+
+        /**
+         * 本次Redis持有的过期时间，开启看门狗时为Long.MAX_VALUE
+         */
+        private long remoteDeadline;
+
+        /**
+         * 本次Redis持有期间已经交接的次数
+         */
+        private int handoffs;
+
+        /**
+         * 引用计数，只在slots.compute中修改
+         */
+        private int references;
+
+        /**
+         * 保护waiters和handedOff，释放者的交接决定与排队者的离开互斥
+         */
+        private final ReentrantLock stateLock = new ReentrantLock();
+
+        /**
+         * 正在本地锁上排队的线程数，只在stateLock内修改
+         */
+        private int waiters;
+
+        /**
+         * Redis锁已交接给本地的下一个持有者、还没有线程接手，只在stateLock内修改
+         */
+        private boolean handedOff;
+
+        private LocalSlot(RLock remoteLock, boolean fair) {
+            this.remoteLock = remoteLock;
+            this.localLock = new ReentrantLock(fair);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Description: 按锁名缓存Redisson的锁对象，容量有上限，按CLOCK（second chance）近似LRU淘汰
+ * <p>
+ * 命中时只设置访问标记；超过容量时由一个线程转动时钟指针，跳过并清除最近访问过的条目，淘汰没有访问标记的条目，
+ * 其他线程不等待也不重复淘汰，因此并发写入时缓存可能短暂超出容量
+ * <p>
+ * Redisson的锁对象不保存持有状态：持有者和重入次数在Redis中，看门狗按锁名登记，
+ * 持有锁的调用方仍然引用着自己的对象，淘汰后再次创建的新对象与之等价，因此淘汰不会影响已持有的锁
+ *
+ * @author ChengZhenxing
+ */
+final class LockObjectCache<T> {
+
+    private final ConcurrentMap<String, Node<T>> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存的最大数量，小于等于0时不缓存
+     */
+    private final int capacity;
+
+    private final Function<String, T> factory;
+
+    /**
+     * 同一时间只有一个线程淘汰
+     */
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    /**
+     * 时钟指针，只在evictLock内使用
+     */
+    private Iterator<Map.Entry<String, Node<T>>> hand;
+
+    LockObjectCache(int capacity, Function<String, T> factory) {
+        this.capacity = capacity;
+        this.factory = factory;
+    }
+
+    T get(String name) {
+        if (capacity <= 0) {
+            return factory.apply(name);
+        }
+        Node<T> node = nodes.get(name);
+        if (node != null) {
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+            return node.value;
+        }
+        node = new Node<>(factory.apply(name));
+        Node<T> existing = nodes.putIfAbsent(name, node);
+        if (existing != null) {
+            return existing.value;
+        }
+        if (nodes.size() > capacity) {
+            evict();
+        }
+        return node.value;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * 转动时钟指针直到回到容量以内，最多转两圈：第一圈清除访问标记，第二圈一定能淘汰
+     */
+    private void evict() {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            int steps = nodes.size() * 2;
+            while (nodes.size() > capacity && steps-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = nodes.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Map.Entry<String, Node<T>> entry = hand.next();
+                Node<T> node = entry.getValue();
+                if (node.referenced) {
+                    node.referenced = false;
+                } else {
+                    nodes.remove(entry.getKey(), node);
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    private static final class Node<T> {
+
+        private final T value;
+
+        /**
+         * 上次被时钟指针经过之后是否被访问过，新放入的条目视为未访问
+         */
+        private volatile boolean referenced;
+
+        private Node(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import com.chengzhx.distributionLocker.service.DistributeSemaphore;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Description: 按块租用许可的分布式信号量
+ * <p>
+ * Redis中用一个hash记录每个节点租用的许可数，用一个有序集合记录每个节点租约的过期时间，
+ * 租用时先清理过期节点的租约，因此节点宕机后它租用的许可在租约过期后自动回到全局；
+ * 本节点的空闲许可保存在本地计数中，acquire/release只在本地没有空闲许可时访问Redis。
+ * 租约的续期、空闲许可的归还由RedissonDistributeLimiter的维护线程调用maintain完成
+ *
+ * @author ChengZhenxing
+ */
+public class RedissonChunkedSemaphore implements DistributeSemaphore {
+
+    /**
+     * 等待Redis中的许可时两次租用之间的最小、最大间隔，单位纳秒；本节点的release会提前唤醒等待者
+     */
+    private static final long RETRY_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(2L);
+
+    private static final long RETRY_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    /**
+     * 租用脚本：清理过期节点的租约后，租出min(ARGV[2], 全局剩余许可)个许可并刷新本节点的租约
+     * <p>
+     * KEYS[1]: 节点 -> 租用的许可数；KEYS[2]: 节点 -> 租约过期时间；
+     * ARGV[1]: 全局许可数；ARGV[2]: 希望租用的许可数；ARGV[3]: 节点id；ARGV[4]: 租约时间（毫秒）
+     * 返回租到的许可数，全局没有剩余许可时返回0
+     */
+    private static final String LEASE_SCRIPT =
+            "if redis.replicate_commands ~= nil then redis.replicate_commands(); end; " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "local expired = redis.call('zrangebyscore', KEYS[2], '-inf', now); " +
+            "for i = 1, #expired do " +
+                "redis.call('hdel', KEYS[1], expired[i]); " +
+                "redis.call('zrem', KEYS[2], expired[i]); " +
+            "end; " +
+            "local used = 0; " +
+            "local counts = redis.call('hvals', KEYS[1]); " +
+            "for i = 1, #counts do used = used + tonumber(counts[i]); end; " +
+            "local granted = math.min(tonumber(ARGV[2]), tonumber(ARGV[1]) - used); " +
+            "if granted <= 0 then return 0; end; " +
+            "redis.call('hincrby', KEYS[1], ARGV[3], granted); " +
+            "redis.call('zadd', KEYS[2], now + tonumber(ARGV[4]), ARGV[3]); " +
+            "redis.call('pexpire', KEYS[1], ARGV[4]); " +
+            "redis.call('pexpire', KEYS[2], ARGV[4]); " +
+            "return granted;";
+
+    /**
+     * 归还脚本：ARGV[1]: 节点id；ARGV[2]: 归还的许可数；节点不再持有许可时删除它的租约
+     */
+    private static final String RETURN_SCRIPT =
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then return 0; end; " +
+            "local left = redis.call('hincrby', KEYS[1], ARGV[1], -tonumber(ARGV[2])); " +
+            "if left <= 0 then " +
+                "redis.call('hdel', KEYS[1], ARGV[1]); " +
+                "redis.call('zrem', KEYS[2], ARGV[1]); " +
+            "end; " +
+            "return left;";
+
+    /**
+     * 续期脚本：ARGV[1]: 节点id；ARGV[2]: 本节点正在使用的许可数；ARGV[3]: 租约时间（毫秒）；ARGV[4]: 全局许可数
+     * 租约仍然存在时刷新过期时间并返回-1；租约已被清理时先清理其他过期节点的租约，
+     * 再重新登记min(ARGV[2], 全局剩余许可)个许可并返回登记的数量，全局许可不会超出
+     */
+    private static final String RENEW_SCRIPT =
+            "if redis.replicate_commands ~= nil then redis.replicate_commands(); end; " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then " +
+                "redis.call('zadd', KEYS[2], now + tonumber(ARGV[3]), ARGV[1]); " +
+                "redis.call('pexpire', KEYS[1], ARGV[3]); " +
+                "redis.call('pexpire', KEYS[2], ARGV[3]); " +
+                "return -1; " +
+            "end; " +
+            "local expired = redis.call('zrangebyscore', KEYS[2], '-inf', now); " +
+            "for i = 1, #expired do " +
+                "redis.call('hdel', KEYS[1], expired[i]); " +
+                "redis.call('zrem', KEYS[2], expired[i]); " +
+            "end; " +
+            "local used = 0; " +
+            "local counts = redis.call('hvals', KEYS[1]); " +
+            "for i = 1, #counts do used = used + tonumber(counts[i]); end; " +
+            "local registered = math.min(tonumber(ARGV[2]), tonumber(ARGV[4]) - used); " +
+            "if registered <= 0 then return 0; end; " +
+            "redis.call('hset', KEYS[1], ARGV[1], registered); " +
+            "redis.call('zadd', KEYS[2], now + tonumber(ARGV[3]), ARGV[1]); " +
+            "redis.call('pexpire', KEYS[1], ARGV[3]); " +
+            "redis.call('pexpire', KEYS[2], ARGV[3]); " +
+            "return registered;";
+
+    /**
+     * RENEW_SCRIPT的返回值，表示租约仍然存在
+     */
+    private static final long RENEWED = -1L;
+
+    private final RScript script;
+
+    private final List<Object> keys;
+
+    private final String nodeId;
+
+    /**
+     * 全局许可数
+     */
+    private final int permits;
+
+    /**
+     * 每次向Redis租用的许可数，也是本节点活跃时保留的空闲许可数
+     */
+    private final int chunkSize;
+
+    private final String leaseMillis;
+
+    private final long idleNanos;
+
+    /**
+     * 本节点空闲的许可数
+     */
+    private final AtomicInteger free = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 本节点有许可被release或者新租到多余的许可
+     */
+    private final Condition available = lock.newCondition();
+
+    /**
+     * 本节点租用的许可数，只在lock内修改
+     */
+    private volatile int leased;
+
+    /**
+     * 租约被清理后没能重新登记、但仍在本节点使用的许可数；release先偿还这部分，偿还完之前不再租用新的许可
+     */
+    private final AtomicInteger debt = new AtomicInteger();
+
+    /**
+     * 在available上等待的线程数，只在lock内修改，release据此决定是否需要唤醒
+     */
+    private volatile int waiters;
+
+    /**
+     * 是否有线程正在访问Redis（租用、续期或归还），同一时间只有一个线程访问，只在lock内修改
+     */
+    private boolean fetching;
+
+    /**
+     * 最近一次acquire或release的时间（System.nanoTime）
+     */
+    private volatile long lastUsed = System.nanoTime();
+
+    /**
+     * @param redissonClient    RedissonClient
+     * @param name              信号量的名称
+     * @param permits           全局许可数
+     * @param chunkSize         每次租用的许可数
+     * @param leaseMillis       租约时间，单位毫秒，节点宕机后它租用的许可在租约过期后回到全局
+     * @param idleTimeoutMillis 空闲超过这个时间后归还所有空闲许可，单位毫秒
+     */
+    public RedissonChunkedSemaphore(RedissonClient redissonClient, String name, int permits, int chunkSize, long leaseMillis,
+                                    long idleTimeoutMillis) {
+        this.script = redissonClient.getScript(StringCodec.INSTANCE);
+        // 两个key位于同一个hash slot
+        String prefix = name.contains("{") ? name : "{" + name + "}";
+        this.keys = Arrays.asList(prefix + ":holders", prefix + ":expiry");
+        this.nodeId = redissonClient.getId();
+        this.permits = permits;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, permits));
+        this.leaseMillis = String.valueOf(leaseMillis);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    @Override
+    public boolean tryAcquire(long waitTime, TimeUnit timeUnit) {
+        lastUsed = System.nanoTime();
+        if (tryTakeLocal()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + timeUnit.toNanos(waitTime);
+        long backoff = RETRY_MIN_NANOS;
+        lock.lock();
+        try {
+            while (true) {
+                if (tryTakeLocal()) {
+                    return true;
+                }
+                if (!fetching && debt.get() == 0) {
+                    // 访问Redis期间不持有本地锁，release和其他等待者不受影响
+                    fetching = true;
+                    long granted;
+                    lock.unlock();
+                    try {
+                        granted = leaseChunk();
+                    } finally {
+                        lock.lock();
+                        fetching = false;
+                        // 唤醒等待者：新租到的许可可以使用，maintain也在等待fetching结束
+                        available.signalAll();
+                    }
+                    if (granted > 0) {
+                        leased += (int) granted;
+                        free.addAndGet((int) granted - 1);
+                        return true;
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                waiters++;
+                try {
+                    available.awaitNanos(Math.min(remaining, backoff));
+                } finally {
+                    waiters--;
+                }
+                backoff = Math.min(backoff << 1, RETRY_MAX_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void release() {
+        lastUsed = System.nanoTime();
+        if (payDebt()) {
+            return;
+        }
+        free.incrementAndGet();
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int getLocalAvailablePermits() {
+        return free.get();
+    }
+
+    @Override
+    public int getLeasedPermits() {
+        return leased;
+    }
+
+    /**
+     * 续期本节点的租约，归还多余的空闲许可：活跃时保留一块，空闲超时后全部归还
+     * <p>
+     * 访问Redis期间不持有lock，只通过fetching与租用互斥，本地的acquire/release和等待者不受影响
+     */
+    void maintain() {
+        int returned;
+        int inUse;
+        lock.lock();
+        try {
+            while (fetching) {
+                available.awaitUninterruptibly();
+            }
+            if (leased == 0) {
+                return;
+            }
+            int keep = System.nanoTime() - lastUsed >= idleNanos ? 0 : chunkSize;
+            returned = drainTo(keep);
+            leased -= returned;
+            inUse = leased - free.get();
+            fetching = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            returnPermits(returned);
+            long registered = leased > 0 ? renewLease(Math.max(0, inUse)) : RENEWED;
+            if (registered != RENEWED) {
+                returnPermits(reconcile((int) registered));
+            }
+        } finally {
+            lock.lock();
+            try {
+                fetching = false;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 关闭时归还所有空闲许可，正在使用的许可在租约过期后回到全局
+     */
+    void close() {
+        int returned;
+        lock.lock();
+        try {
+            returned = drainTo(0);
+            leased -= returned;
+        } finally {
+            lock.unlock();
+        }
+        returnPermits(returned);
+    }
+
+    /**
+     * 租约已被清理时调整本地状态：空闲许可可能已经租给了其他节点，全部作废；
+     * 正在使用的许可超出重新登记的部分记为debt，由之后的release偿还
+     *
+     * @param registered 重新登记的许可数
+     * @return 重新登记的许可多于正在使用的许可时需要归还的数量
+     */
+    private int reconcile(int registered) {
+        lock.lock();
+        try {
+            int inUse = leased - drainTo(0);
+            leased = Math.min(registered, inUse);
+            if (registered < inUse) {
+                debt.addAndGet(inUse - registered);
+            }
+            return registered - leased;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean payDebt() {
+        while (true) {
+            int current = debt.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (debt.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean tryTakeLocal() {
+        while (true) {
+            int current = free.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (free.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 把空闲许可减少到keep个，调用方必须持有lock
+     *
+     * @return 减少的许可数
+     */
+    private int drainTo(int keep) {
+        while (true) {
+            int current = free.get();
+            if (current <= keep) {
+                return 0;
+            }
+            if (free.compareAndSet(current, keep)) {
+                return current - keep;
+            }
+        }
+    }
+
+    private long leaseChunk() {
+        Long granted = script.eval(RScript.Mode.READ_WRITE, LEASE_SCRIPT, RScript.ReturnType.INTEGER, keys,
+                String.valueOf(permits), String.valueOf(chunkSize), nodeId, leaseMillis);
+        return granted == null ? 0L : granted;
+    }
+
+    /**
+     * 向Redis归还许可，调用方必须已经从leased中扣除
+     */
+    private void returnPermits(int count) {
+        if (count <= 0) {
+            return;
+        }
+        script.eval(RScript.Mode.READ_WRITE, RETURN_SCRIPT, RScript.ReturnType.INTEGER, keys, nodeId, String.valueOf(count));
+    }
+
+    /**
+     * @return 租约仍然存在时返回RENEWED，否则返回重新登记的许可数
+     */
+    private long renewLease(int inUse) {
+        Long registered = script.eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT, RScript.ReturnType.INTEGER, keys,
+                nodeId, String.valueOf(inUse), leaseMillis, String.valueOf(permits));
+        return registered == null ? 0L : registered;
+    }
+}
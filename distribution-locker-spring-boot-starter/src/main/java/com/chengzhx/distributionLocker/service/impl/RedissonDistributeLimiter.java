@@ -0,0 +1,219 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import com.chengzhx.distributionLocker.service.DistributeLimiter;
+import com.chengzhx.distributionLocker.service.DistributeSemaphore;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: 基于Redis脚本的分布式限流
+ * <p>
+ * 脚本使用Redis服务端的时间，不受各节点时钟偏差的影响
+ *
+ * @author ChengZhenxing
+ */
+@Slf4j
+public class RedissonDistributeLimiter implements DistributeLimiter, AutoCloseable {
+
+    /**
+     * 并发许可没有释放通知，两次重试之间的最大间隔（毫秒）
+     */
+    private static final long PERMIT_MAX_RETRY_INTERVAL = 100L;
+
+    /**
+     * 令牌桶脚本：按距离上次更新的时间补充令牌，令牌不少于ARGV[4]时取走min(令牌数, ARGV[5])个
+     * <p>
+     * KEYS[1]: 令牌桶；ARGV[1]: 每个周期生成的令牌数；ARGV[2]: 周期（毫秒）；ARGV[3]: 容量；
+     * ARGV[4]: 至少获取的令牌数；ARGV[5]: 最多获取的令牌数
+     * 返回{获取到的令牌数, 0}，令牌不足时返回{0, 补足所需的毫秒数}
+     */
+    private static final String TOKEN_BUCKET_SCRIPT =
+            "if redis.replicate_commands ~= nil then redis.replicate_commands(); end; " +
+            "local rate = tonumber(ARGV[1]); " +
+            "local period = tonumber(ARGV[2]); " +
+            "local capacity = tonumber(ARGV[3]); " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "local state = redis.call('hmget', KEYS[1], 'tokens', 'timestamp'); " +
+            "local tokens = tonumber(state[1]); " +
+            "local last = tonumber(state[2]); " +
+            "if tokens == nil then tokens = capacity; last = now; end; " +
+            "if now > last then " +
+                "tokens = math.min(capacity, tokens + (now - last) * rate / period); " +
+                "last = now; " +
+            "end; " +
+            "if tokens < tonumber(ARGV[4]) then " +
+                "return {0, math.ceil((tonumber(ARGV[4]) - tokens) * period / rate)}; " +
+            "end; " +
+            "local granted = math.min(tonumber(ARGV[5]), math.floor(tokens)); " +
+            "redis.call('hmset', KEYS[1], 'tokens', tostring(tokens - granted), 'timestamp', last); " +
+            "redis.call('pexpire', KEYS[1], math.ceil(capacity * period / rate) + period); " +
+            "return {granted, 0};";
+
+    /**
+     * 并发许可脚本：有序集合中保存许可id，分数为过期时间，先清理过期的许可再检查数量
+     * <p>
+     * KEYS[1]: 许可集合；ARGV[1]: 许可总数；ARGV[2]: 过期时间（毫秒）；ARGV[3]: 许可id
+     * 获取成功返回nil，否则返回最早过期的许可的剩余时间
+     */
+    private static final String ACQUIRE_PERMIT_SCRIPT =
+            "if redis.replicate_commands ~= nil then redis.replicate_commands(); end; " +
+            "local time = redis.call('time'); " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000); " +
+            "redis.call('zremrangebyscore', KEYS[1], '-inf', now); " +
+            "if redis.call('zcard', KEYS[1]) < tonumber(ARGV[1]) then " +
+                "redis.call('zadd', KEYS[1], now + tonumber(ARGV[2]), ARGV[3]); " +
+                "if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then " +
+                    "redis.call('pexpire', KEYS[1], ARGV[2]); " +
+                "end; " +
+                "return nil; " +
+            "end; " +
+            "local first = redis.call('zrange', KEYS[1], 0, 0, 'WITHSCORES'); " +
+            "return tonumber(first[2]) - now;";
+
+    private final RedissonClient redissonClient;
+
+    /**
+     * 本节点许可id的序号，与客户端id拼接后全局唯一
+     */
+    private final AtomicLong permitSequence = new AtomicLong();
+
+    /**
+     * 名称 -> 按块租用许可的信号量
+     */
+    private final ConcurrentMap<String, RedissonChunkedSemaphore> semaphores = new ConcurrentHashMap<>();
+
+    private final int semaphoreChunkSize;
+
+    private final long semaphoreLeaseMillis;
+
+    private final long semaphoreIdleTimeoutMillis;
+
+    /**
+     * 信号量的维护线程，续期租约并归还空闲许可，第一次创建信号量时启动
+     */
+    private volatile ScheduledExecutorService scheduler;
+
+    // 构造函数
+    public RedissonDistributeLimiter(RedissonClient redissonClient, int semaphoreChunkSize, long semaphoreLeaseMillis,
+                                     long semaphoreIdleTimeoutMillis) {
+        this.redissonClient = redissonClient;
+        this.semaphoreChunkSize = semaphoreChunkSize;
+        this.semaphoreLeaseMillis = semaphoreLeaseMillis;
+        this.semaphoreIdleTimeoutMillis = semaphoreIdleTimeoutMillis;
+    }
+
+    @Override
+    public long tryAcquireTokens(String limitKey, long rate, long periodMillis, long capacity, long minTokens, long maxTokens,
+                                 long waitMillis) {
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        List<Object> keys = Collections.singletonList(limitKey);
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            List<Long> result = script.eval(RScript.Mode.READ_WRITE, TOKEN_BUCKET_SCRIPT, RScript.ReturnType.MULTI, keys,
+                    String.valueOf(rate), String.valueOf(periodMillis), String.valueOf(capacity),
+                    String.valueOf(minTokens), String.valueOf(maxTokens));
+            long granted = result.get(0);
+            if (granted > 0) {
+                return granted;
+            }
+            // 补足令牌所需的时间已经超过剩余等待时间，不再等待
+            long pause = result.get(1);
+            if (pause > deadline - System.currentTimeMillis()) {
+                return 0L;
+            }
+            try {
+                Thread.sleep(pause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return 0L;
+            }
+        }
+    }
+
+    @Override
+    public String tryAcquirePermit(String limitKey, int permits, long leaseMillis, long waitMillis) {
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        List<Object> keys = Collections.singletonList(limitKey);
+        String permitId = redissonClient.getId() + ":" + permitSequence.incrementAndGet();
+        String permitCount = String.valueOf(permits);
+        String lease = String.valueOf(leaseMillis);
+        // 许可的归还没有通知，按退避间隔重试
+        boolean acquired = WaitStrategySupport.retry(waitMillis, WaitStrategy.BACKOFF, PERMIT_MAX_RETRY_INTERVAL, () -> {
+            Long ttl = script.eval(RScript.Mode.READ_WRITE, ACQUIRE_PERMIT_SCRIPT, RScript.ReturnType.INTEGER, keys,
+                    permitCount, lease, permitId);
+            return ttl == null ? WaitStrategySupport.ACQUIRED : ttl;
+        });
+        return acquired ? permitId : null;
+    }
+
+    @Override
+    public boolean releasePermit(String limitKey, String permitId) {
+        return redissonClient.getScoredSortedSet(limitKey, StringCodec.INSTANCE).remove(permitId);
+    }
+
+    @Override
+    public DistributeSemaphore getChunkedSemaphore(String name, int permits) {
+        RedissonChunkedSemaphore semaphore = semaphores.get(name);
+        if (semaphore != null) {
+            return semaphore;
+        }
+        startScheduler();
+        return semaphores.computeIfAbsent(name, key -> new RedissonChunkedSemaphore(redissonClient, key, permits,
+                semaphoreChunkSize, semaphoreLeaseMillis, semaphoreIdleTimeoutMillis));
+    }
+
+    /**
+     * 关闭维护线程并归还所有信号量的空闲许可
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null) {
+            current.shutdownNow();
+        }
+        for (RedissonChunkedSemaphore semaphore : semaphores.values()) {
+            try {
+                semaphore.close();
+            } catch (RuntimeException e) {
+                log.warn("归还信号量的空闲许可失败", e);
+            }
+        }
+    }
+
+    private synchronized void startScheduler() {
+        if (scheduler != null) {
+            return;
+        }
+        // 续期间隔取租约的1/3，空闲超时较短时按空闲超时检查
+        long interval = Math.max(1L, Math.min(semaphoreLeaseMillis / 3, semaphoreIdleTimeoutMillis));
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new DefaultThreadFactory("distribute-semaphore-maintenance", true));
+        executor.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    private void maintain() {
+        for (RedissonChunkedSemaphore semaphore : semaphores.values()) {
+            try {
+                semaphore.maintain();
+            } catch (RuntimeException e) {
+                // 下一轮重试，租约在此之前不会过期
+                log.warn("信号量租约续期失败", e);
+            }
+        }
+    }
+}
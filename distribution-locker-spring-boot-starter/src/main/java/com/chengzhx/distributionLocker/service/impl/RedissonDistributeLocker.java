@@ -1,9 +1,27 @@
 package com.chengzhx.distributionLocker.service.impl;
 
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
 import com.chengzhx.distributionLocker.service.DistributeLocker;
+import com.chengzhx.distributionLocker.service.LeaseExtension;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.util.HashSlotUtil;
+import com.chengzhx.distributionLocker.util.RedissonLockUtil;
 import org.redisson.api.*;
+import org.redisson.client.codec.StringCodec;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Description:
@@ -13,26 +31,168 @@ import java.util.concurrent.TimeUnit;
  */
 public class RedissonDistributeLocker implements DistributeLocker {
 
+    /**
+     * 多key加锁脚本：按顺序检查所有key，只要有一个被其他持有者占用就返回它的剩余过期时间，
+     * 否则给所有key加锁（与RLock相同的hash结构，field为持有者，value为重入次数）并返回nil
+     * <p>
+     * KEYS: 锁的key；ARGV[1]: 过期时间（毫秒）；ARGV[2]: 持有者
+     */
+    private static final String LOCK_ALL_SCRIPT =
+            "for i = 1, #KEYS do " +
+                "if (redis.call('exists', KEYS[i]) == 1) and (redis.call('hexists', KEYS[i], ARGV[2]) == 0) then " +
+                    "return redis.call('pttl', KEYS[i]); " +
+                "end; " +
+            "end; " +
+            "for i = 1, #KEYS do " +
+                "redis.call('hincrby', KEYS[i], ARGV[2], 1); " +
+                "redis.call('pexpire', KEYS[i], ARGV[1]); " +
+            "end; " +
+            "return nil;";
+
+    /**
+     * 多key解锁脚本：释放当前持有者持有的key，重入次数归零时删除key并通知等待者
+     * <p>
+     * KEYS: 前一半为锁的key，后一半为对应的解锁通知channel；ARGV[1]: 持有者；ARGV[2]: 解锁消息
+     * 返回实际被当前持有者持有的key数量
+     */
+    private static final String UNLOCK_ALL_SCRIPT =
+            "local count = #KEYS / 2; " +
+            "local held = 0; " +
+            "for i = 1, count do " +
+                "if (redis.call('hexists', KEYS[i], ARGV[1]) == 1) then " +
+                    "held = held + 1; " +
+                    "if (redis.call('hincrby', KEYS[i], ARGV[1], -1) <= 0) then " +
+                        "redis.call('del', KEYS[i]); " +
+                        "redis.call('publish', KEYS[count + i], ARGV[2]); " +
+                    "end; " +
+                "end; " +
+            "end; " +
+            "return held;";
+
+    /**
+     * 带fencing token的加锁脚本：检查和加锁与LOCK_ALL_SCRIPT相同，加锁成功时在同一次调用中
+     * 对每个key的fencing计数器执行incr并刷新计数器的过期时间
+     * <p>
+     * 计数器长时间没有使用会过期，重新创建时以Redis的当前时间（微秒）作为初始值；
+     * 同一个key每秒的加锁次数远小于一百万，因此新的token仍然大于过期前发出的所有token，同一个key的token单调递增
+     * <p>
+     * KEYS: 前一半为锁的key，后一半为对应的fencing计数器；ARGV[1]: 过期时间（毫秒）；ARGV[2]: 持有者；
+     * ARGV[3]: 计数器的过期时间（毫秒）
+     * 获取成功返回{1, token1, token2, ...}，被占用时返回{0, 占用者的剩余过期时间}
+     */
+    private static final String FENCED_LOCK_SCRIPT =
+            "if redis.replicate_commands ~= nil then redis.replicate_commands(); end; " +
+            "local count = #KEYS / 2; " +
+            "for i = 1, count do " +
+                "if (redis.call('exists', KEYS[i]) == 1) and (redis.call('hexists', KEYS[i], ARGV[2]) == 0) then " +
+                    "return {0, redis.call('pttl', KEYS[i])}; " +
+                "end; " +
+            "end; " +
+            "local result = {1}; " +
+            "local seed = nil; " +
+            "for i = 1, count do " +
+                "redis.call('hincrby', KEYS[i], ARGV[2], 1); " +
+                "redis.call('pexpire', KEYS[i], ARGV[1]); " +
+                "if (redis.call('exists', KEYS[count + i]) == 0) then " +
+                    "if (seed == nil) then " +
+                        "local time = redis.call('time'); " +
+                        "seed = time[1] .. string.format('%06d', tonumber(time[2])); " +
+                    "end; " +
+                    "redis.call('set', KEYS[count + i], seed); " +
+                "end; " +
+                "result[i + 1] = redis.call('incr', KEYS[count + i]); " +
+                "redis.call('pexpire', KEYS[count + i], ARGV[3]); " +
+            "end; " +
+            "return result;";
+
+    /**
+     * 续期脚本：所有key都被指定持有者持有时重新设置过期时间并返回1，否则不做修改并返回0
+     * <p>
+     * KEYS: 锁的key；ARGV[1]: 过期时间（毫秒）；ARGV[2]: 持有者
+     */
+    private static final String RENEW_SCRIPT =
+            "for i = 1, #KEYS do " +
+                "if (redis.call('hexists', KEYS[i], ARGV[2]) == 0) then " +
+                    "return 0; " +
+                "end; " +
+            "end; " +
+            "for i = 1, #KEYS do " +
+                "redis.call('pexpire', KEYS[i], ARGV[1]); " +
+            "end; " +
+            "return 1;";
+
+    /**
+     * 与Redisson的RLock保持一致的解锁通知channel前缀和消息
+     */
+    private static final String LOCK_CHANNEL_PREFIX = "redisson_lock__channel";
+
+    private static final String UNLOCK_MESSAGE = "0";
+
+    /**
+     * fencing计数器的key后缀
+     */
+    private static final String FENCE_SUFFIX = ":fence";
+
+    /**
+     * fencing计数器多久没有使用后过期，单位毫秒；按实体生成的key不会在Redis中无限累积计数器
+     */
+    private static final String FENCE_TTL_MILLIS = String.valueOf(TimeUnit.DAYS.toMillis(7));
+
+    /**
+     * 多key加锁等待期间两次重试之间的最大间隔，单位毫秒
+     */
+    private static final long LOCK_ALL_MAX_RETRY_INTERVAL = 100L;
+
+    /**
+     * 默认缓存的RLock数量
+     */
+    private static final int DEFAULT_LOCK_CACHE_SIZE = 10000;
+
     private final RedissonClient redissonClient;
 
+    /**
+     * 是否为集群模式，集群模式下多key操作按slot拆分
+     */
+    private final boolean cluster;
+
+    /**
+     * 锁名 -> 锁对象 缓存，避免每次调用都创建新的锁对象；每种锁各自缓存，容量相同
+     */
+    private final LockObjectCache<RLock> lockCache;
+
+    private final LockObjectCache<RLock> fairLockCache;
+
+    private final LockObjectCache<RReadWriteLock> readWriteLockCache;
+
     // 构造函数
     public RedissonDistributeLocker(RedissonClient redissonClient) {
+        this(redissonClient, DEFAULT_LOCK_CACHE_SIZE);
+    }
+
+    public RedissonDistributeLocker(RedissonClient redissonClient, int lockCacheSize) {
         this.redissonClient = redissonClient;
+        this.cluster = redissonClient.getConfig().isClusterConfig();
+        this.lockCache = new LockObjectCache<>(lockCacheSize, redissonClient::getLock);
+        this.fairLockCache = new LockObjectCache<>(lockCacheSize, redissonClient::getFairLock);
+        this.readWriteLockCache = new LockObjectCache<>(lockCacheSize, redissonClient::getReadWriteLock);
     }
 
+    /**
+     * 从缓存中取RLock，不存在时创建；缓存满时淘汰最近没有使用的锁对象
+     */
     @Override
     public RLock getLock(String lockKey) {
-        return redissonClient.getLock(lockKey);
+        return lockCache.get(lockKey);
     }
 
     @Override
     public RLock getFairLock(String lockKey) {
-        return redissonClient.getFairLock(lockKey);
+        return fairLockCache.get(lockKey);
     }
 
     @Override
     public RReadWriteLock getReadWriteLock(String lockKey) {
-        return redissonClient.getReadWriteLock(lockKey);
+        return readWriteLockCache.get(lockKey);
     }
 
     @Override
@@ -46,15 +206,66 @@ public class RedissonDistributeLocker implements DistributeLocker {
     }
 
     @Override
-    public RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit) throws InterruptedException {
-        RLock lock = redissonClient.getLock(lockKey);
-        Thread.sleep(1000);
+    public RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit) {
+        RLock lock = getLock(lockKey);
         return lock.tryLockAsync(waitTime, leaseTime, timeUnit);
     }
 
+    @Override
+    public RFuture<Boolean> tryLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, long ownerId) {
+        RLock lock = getLock(lockKey);
+        return lock.tryLockAsync(waitTime, leaseTime, timeUnit, ownerId);
+    }
+
+    @Override
+    public RFuture<Void> unLockAsync(String lockKey, long ownerId) {
+        RLock lock = getLock(lockKey);
+        return lock.unlockAsync(ownerId);
+    }
+
+    @Override
+    public RFuture<Boolean> isLockedAsync(String lockKey) {
+        return getLock(lockKey).isLockedAsync();
+    }
+
+    @Override
+    public <T> CompletionStage<T> withLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit,
+                                                Supplier<CompletionStage<T>> action) {
+        RLock lock = getLock(lockKey);
+        long ownerId = RedissonLockUtil.newAsyncOwnerId();
+        return lock.tryLockAsync(waitTime, leaseTime, timeUnit, ownerId).thenCompose(acquired -> {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            if (!acquired) {
+                result.completeExceptionally(new DistributionLockException("获取分布式锁失败"));
+                return result;
+            }
+            CompletionStage<T> stage;
+            try {
+                stage = action.get();
+            } catch (Throwable e) {
+                stage = failedStage(e);
+            }
+            // 无论action成功还是失败都异步释放锁，再把action的结果传递出去
+            stage.whenComplete((value, error) -> lock.unlockAsync(ownerId).whenComplete((unused, unlockError) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            }));
+            return result;
+        });
+    }
+
+    private static <T> CompletionStage<T> failedStage(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
     @Override
     public void unLock(String lockKey) {
-        RLock lock = redissonClient.getLock(lockKey);
+        RLock lock = getLock(lockKey);
         lock.unlock();
     }
 
@@ -65,21 +276,21 @@ public class RedissonDistributeLocker implements DistributeLocker {
 
     @Override
     public RLock lock(String lockKey, int timeout) {
-        RLock lock = redissonClient.getLock(lockKey);
+        RLock lock = getLock(lockKey);
         lock.lock(timeout, TimeUnit.SECONDS);
         return lock;
     }
 
     @Override
     public RLock lock(String lockKey, TimeUnit timeUnit, int timeout) {
-        RLock lock = redissonClient.getLock(lockKey);
+        RLock lock = getLock(lockKey);
         lock.lock(timeout, timeUnit);
         return lock;
     }
 
     @Override
     public boolean tryLock(String lockKey, int waitTime, int leaseTime) {
-        RLock lock = redissonClient.getLock(lockKey);
+        RLock lock = getLock(lockKey);
         try {
             return lock.tryLock(waitTime, leaseTime, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
@@ -89,7 +300,7 @@ public class RedissonDistributeLocker implements DistributeLocker {
 
     @Override
     public boolean tryLock(String lockKey, TimeUnit timeUnit, int waitTime, int leaseTime) {
-        RLock lock = redissonClient.getLock(lockKey);
+        RLock lock = getLock(lockKey);
         try {
             return lock.tryLock(waitTime, leaseTime, timeUnit);
         } catch (InterruptedException e) {
@@ -97,13 +308,364 @@ public class RedissonDistributeLocker implements DistributeLocker {
         }
     }
 
+    @Override
+    public RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        RLock lock = getLock(lockKey);
+        try {
+            return lock.tryLock(waitTime, leaseTime, timeUnit) ? lock : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy) {
+        if (waitStrategy == WaitStrategy.PUBSUB) {
+            return tryAcquire(lockKey, timeUnit, waitTime, leaseTime);
+        }
+        RLock lock = getLock(lockKey);
+        // 持有者为当前线程，与RLock.tryLock一致，可以直接用RLock.unlock释放
+        return WaitStrategySupport.tryLock(lock, Thread.currentThread().getId(), timeUnit.toNanos(waitTime), leaseTime,
+                timeUnit, waitStrategy) ? lock : null;
+    }
+
+    @Override
+    public boolean release(RLock lock) {
+        try {
+            // 解锁脚本本身会校验持有者，一次往返即可完成
+            lock.unlock();
+            return true;
+        } catch (IllegalMonitorStateException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean tryLock(RLock lock, long ownerId, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy) {
+        return WaitStrategySupport.tryLock(lock, ownerId, timeUnit.toNanos(waitTime), leaseTime, timeUnit, waitStrategy);
+    }
+
+    @Override
+    public boolean unlock(RLock lock, long ownerId) {
+        try {
+            lock.unlockAsync(ownerId).toCompletableFuture().join();
+            return true;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalMonitorStateException) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return tryLockAll(lockKeys, timeUnit, waitTime, leaseTime, WaitStrategy.PUBSUB);
+    }
+
+    @Override
+    public boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                              WaitStrategy waitStrategy) {
+        return tryLockAll(lockKeys, timeUnit, waitTime, leaseTime, waitStrategy, Thread.currentThread().getId());
+    }
+
+    @Override
+    public boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                              WaitStrategy waitStrategy, long ownerId) {
+        // 固定顺序并去重，避免不同调用方交叉加锁
+        List<List<String>> groups = groupBySlot(lockKeys);
+        if (groups.isEmpty()) {
+            return true;
+        }
+        String leaseMillis = String.valueOf(leaseMillis(timeUnit, leaseTime));
+        String owner = getOwnerName(ownerId);
+        if (groups.size() > 1) {
+            return WaitStrategySupport.retry(timeUnit.toMillis(waitTime), waitStrategy, LOCK_ALL_MAX_RETRY_INTERVAL,
+                    () -> lockGroups(groups, leaseMillis, owner));
+        }
+        List<Object> keys = new ArrayList<>(groups.get(0));
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        return WaitStrategySupport.retry(timeUnit.toMillis(waitTime), waitStrategy, LOCK_ALL_MAX_RETRY_INTERVAL, () -> {
+            Long ttl = script.eval(RScript.Mode.READ_WRITE, LOCK_ALL_SCRIPT, RScript.ReturnType.INTEGER, keys, leaseMillis, owner);
+            return ttl == null ? WaitStrategySupport.ACQUIRED : ttl;
+        });
+    }
+
+    /**
+     * 跨slot的多key加锁：每个slot一次脚本调用，放在一个批次里，Redisson按节点拆分后并行发送，每个节点一次往返。
+     * 任意一组被占用时释放本次已经加上的组，等待期间不持有任何锁，不会与其他调用方互相等待
+     *
+     * @return 全部加锁成功返回ACQUIRED，否则返回占用者的剩余过期时间
+     */
+    private long lockGroups(List<List<String>> groups, String leaseMillis, String owner) {
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+        RScriptAsync script = batch.getScript(StringCodec.INSTANCE);
+        List<RFuture<Long>> futures = new ArrayList<>(groups.size());
+        for (List<String> group : groups) {
+            futures.add(script.evalAsync(RScript.Mode.READ_WRITE, LOCK_ALL_SCRIPT, RScript.ReturnType.INTEGER,
+                    new ArrayList<Object>(group), leaseMillis, owner));
+        }
+        batch.execute();
+        long ttl = WaitStrategySupport.ACQUIRED;
+        List<String> locked = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            Long result = futures.get(i).toCompletableFuture().join();
+            if (result == null) {
+                locked.addAll(groups.get(i));
+            } else if (ttl == WaitStrategySupport.ACQUIRED) {
+                ttl = result;
+            }
+        }
+        if (ttl != WaitStrategySupport.ACQUIRED && !locked.isEmpty()) {
+            unlockGroups(groupBySlot(locked), owner);
+        }
+        return ttl;
+    }
+
+    @Override
+    public Map<String, Long> tryLockFenced(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                                           WaitStrategy waitStrategy, long ownerId) {
+        List<List<String>> groups = groupBySlot(lockKeys);
+        Map<String, Long> tokens = new LinkedHashMap<>();
+        if (groups.isEmpty()) {
+            return tokens;
+        }
+        String leaseMillis = String.valueOf(leaseMillis(timeUnit, leaseTime));
+        String owner = getOwnerName(ownerId);
+        if (groups.size() > 1) {
+            boolean acquired = WaitStrategySupport.retry(timeUnit.toMillis(waitTime), waitStrategy, LOCK_ALL_MAX_RETRY_INTERVAL,
+                    () -> lockFencedGroups(groups, leaseMillis, owner, tokens));
+            return acquired ? sortByKey(tokens) : null;
+        }
+        List<String> sortedKeys = groups.get(0);
+        List<Object> keys = fencedKeys(sortedKeys);
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        boolean acquired = WaitStrategySupport.retry(timeUnit.toMillis(waitTime), waitStrategy, LOCK_ALL_MAX_RETRY_INTERVAL, () -> {
+            List<Object> result = script.eval(RScript.Mode.READ_WRITE, FENCED_LOCK_SCRIPT, RScript.ReturnType.MULTI, keys,
+                    leaseMillis, owner, FENCE_TTL_MILLIS);
+            if (((Number) result.get(0)).longValue() == 0L) {
+                return ((Number) result.get(1)).longValue();
+            }
+            for (int i = 0; i < sortedKeys.size(); i++) {
+                tokens.put(sortedKeys.get(i), ((Number) result.get(i + 1)).longValue());
+            }
+            return WaitStrategySupport.ACQUIRED;
+        });
+        return acquired ? tokens : null;
+    }
+
+    /**
+     * 跨slot的fencing加锁，批次和回滚方式与lockGroups相同；回滚的组已经生成的token不再使用，token仍然单调递增
+     *
+     * @return 全部加锁成功返回ACQUIRED并把token写入tokens，否则返回占用者的剩余过期时间
+     */
+    private long lockFencedGroups(List<List<String>> groups, String leaseMillis, String owner, Map<String, Long> tokens) {
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+        RScriptAsync script = batch.getScript(StringCodec.INSTANCE);
+        List<RFuture<List<Object>>> futures = new ArrayList<>(groups.size());
+        for (List<String> group : groups) {
+            futures.add(script.evalAsync(RScript.Mode.READ_WRITE, FENCED_LOCK_SCRIPT, RScript.ReturnType.MULTI,
+                    fencedKeys(group), leaseMillis, owner, FENCE_TTL_MILLIS));
+        }
+        batch.execute();
+        long ttl = WaitStrategySupport.ACQUIRED;
+        List<String> locked = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            List<Object> result = futures.get(i).toCompletableFuture().join();
+            List<String> group = groups.get(i);
+            if (((Number) result.get(0)).longValue() != 0L) {
+                locked.addAll(group);
+                for (int j = 0; j < group.size(); j++) {
+                    tokens.put(group.get(j), ((Number) result.get(j + 1)).longValue());
+                }
+            } else if (ttl == WaitStrategySupport.ACQUIRED) {
+                ttl = ((Number) result.get(1)).longValue();
+            }
+        }
+        if (ttl != WaitStrategySupport.ACQUIRED) {
+            tokens.clear();
+            if (!locked.isEmpty()) {
+                unlockGroups(groupBySlot(locked), owner);
+            }
+        }
+        return ttl;
+    }
+
+    /**
+     * 同一组的锁key和对应的fencing计数器，前一半为锁的key，后一半为计数器
+     */
+    private static List<Object> fencedKeys(List<String> sortedKeys) {
+        List<Object> keys = new ArrayList<>(sortedKeys.size() * 2);
+        keys.addAll(sortedKeys);
+        for (String lockKey : sortedKeys) {
+            keys.add(getFenceName(lockKey));
+        }
+        return keys;
+    }
+
+    private static Map<String, Long> sortByKey(Map<String, Long> tokens) {
+        return new LinkedHashMap<>(new TreeMap<>(tokens));
+    }
+
+    /**
+     * 脚本加锁的过期时间，未指定时使用看门狗的超时时间（脚本加锁不会自动续期）
+     */
+    private long leaseMillis(TimeUnit timeUnit, long leaseTime) {
+        return leaseTime > 0 ? timeUnit.toMillis(leaseTime) : redissonClient.getConfig().getLockWatchdogTimeout();
+    }
+
+    @Override
+    public boolean unlockAll(Collection<String> lockKeys) {
+        return unlockAll(lockKeys, Thread.currentThread().getId());
+    }
+
+    @Override
+    public boolean unlockAll(Collection<String> lockKeys, long ownerId) {
+        List<List<String>> groups = groupBySlot(lockKeys);
+        if (groups.isEmpty()) {
+            return true;
+        }
+        if (groups.size() > 1) {
+            return unlockGroups(groups, getOwnerName(ownerId));
+        }
+        List<String> distinctKeys = groups.get(0);
+        Long held = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, UNLOCK_ALL_SCRIPT,
+                RScript.ReturnType.INTEGER, unlockKeys(distinctKeys), getOwnerName(ownerId), UNLOCK_MESSAGE);
+        return held != null && held == distinctKeys.size();
+    }
+
+    /**
+     * 跨slot的多key解锁，每个slot一次脚本调用，放在一个批次里发送
+     *
+     * @return true-全部释放成功 false-部分锁已经不被该持有者持有
+     */
+    private boolean unlockGroups(List<List<String>> groups, String owner) {
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+        RScriptAsync script = batch.getScript(StringCodec.INSTANCE);
+        List<RFuture<Long>> futures = new ArrayList<>(groups.size());
+        for (List<String> group : groups) {
+            futures.add(script.evalAsync(RScript.Mode.READ_WRITE, UNLOCK_ALL_SCRIPT, RScript.ReturnType.INTEGER,
+                    unlockKeys(group), owner, UNLOCK_MESSAGE));
+        }
+        batch.execute();
+        boolean released = true;
+        for (int i = 0; i < futures.size(); i++) {
+            Long held = futures.get(i).toCompletableFuture().join();
+            released &= held != null && held == groups.get(i).size();
+        }
+        return released;
+    }
+
+    /**
+     * 同一组的锁key和对应的解锁通知channel，前一半为锁的key，后一半为channel
+     */
+    private static List<Object> unlockKeys(List<String> distinctKeys) {
+        List<Object> keys = new ArrayList<>(distinctKeys.size() * 2);
+        keys.addAll(distinctKeys);
+        for (String lockKey : distinctKeys) {
+            keys.add(getChannelName(lockKey));
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean renew(Collection<String> lockKeys, long ownerId, TimeUnit timeUnit, long leaseTime) {
+        List<List<String>> groups = groupBySlot(lockKeys);
+        if (groups.isEmpty()) {
+            return true;
+        }
+        if (groups.size() > 1) {
+            return renewAll(Collections.singletonList(new LeaseExtension(lockKeys, ownerId, timeUnit.toMillis(leaseTime))))[0];
+        }
+        List<Object> keys = new ArrayList<>(groups.get(0));
+        Long renewed = redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RENEW_SCRIPT,
+                RScript.ReturnType.INTEGER, keys, String.valueOf(timeUnit.toMillis(leaseTime)), getOwnerName(ownerId));
+        return renewed != null && renewed == 1L;
+    }
+
+    @Override
+    public boolean[] renewAll(List<LeaseExtension> extensions) {
+        boolean[] renewed = new boolean[extensions.size()];
+        if (extensions.isEmpty()) {
+            return renewed;
+        }
+        // 所有续期脚本放在一个批次里，一次往返发送；集群模式下按节点拆分后并行发送，跨slot的锁每个slot一次脚本调用
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+        RScriptAsync script = batch.getScript(StringCodec.INSTANCE);
+        List<List<RFuture<Long>>> futures = new ArrayList<>(extensions.size());
+        for (LeaseExtension extension : extensions) {
+            String leaseMillis = String.valueOf(extension.getLeaseMillis());
+            String owner = getOwnerName(extension.getOwnerId());
+            List<List<String>> groups = groupBySlot(extension.getLockKeys());
+            List<RFuture<Long>> groupFutures = new ArrayList<>(groups.size());
+            for (List<String> group : groups) {
+                groupFutures.add(script.evalAsync(RScript.Mode.READ_WRITE, RENEW_SCRIPT, RScript.ReturnType.INTEGER,
+                        new ArrayList<Object>(group), leaseMillis, owner));
+            }
+            futures.add(groupFutures);
+        }
+        batch.execute();
+        for (int i = 0; i < futures.size(); i++) {
+            renewed[i] = true;
+            for (RFuture<Long> future : futures.get(i)) {
+                Long result = future.toCompletableFuture().join();
+                renewed[i] &= result != null && result == 1L;
+            }
+        }
+        return renewed;
+    }
+
+    /**
+     * 去重并排序后的key，集群模式下按slot分组，其他模式下只有一组
+     */
+    private List<List<String>> groupBySlot(Collection<String> lockKeys) {
+        if (cluster) {
+            return HashSlotUtil.groupBySlot(lockKeys);
+        }
+        List<String> keys = new ArrayList<>(new TreeSet<>(lockKeys));
+        return keys.isEmpty() ? Collections.<List<String>>emptyList() : Collections.singletonList(keys);
+    }
+
+    /**
+     * 锁的解锁通知channel，与RLock的命名规则一致（key自带hash tag时不再包一层）
+     */
+    private static String getChannelName(String lockKey) {
+        if (lockKey.contains("{")) {
+            return LOCK_CHANNEL_PREFIX + ":" + lockKey;
+        }
+        return LOCK_CHANNEL_PREFIX + ":{" + lockKey + "}";
+    }
+
+    /**
+     * 锁的fencing计数器，与锁的key位于同一个hash slot
+     */
+    private static String getFenceName(String lockKey) {
+        if (lockKey.contains("{")) {
+            return lockKey + FENCE_SUFFIX;
+        }
+        return "{" + lockKey + "}" + FENCE_SUFFIX;
+    }
+
+    /**
+     * 当前线程在锁hash中的持有者名称，与RLock的格式一致
+     */
+    private String getOwnerName(long ownerId) {
+        return redissonClient.getId() + ":" + ownerId;
+    }
+
     @Override
     public boolean isLocked(String lockKey) {
-        return redissonClient.getLock(lockKey).isLocked();
+        return getLock(lockKey).isLocked();
     }
 
     @Override
     public boolean isHeldByCurrentThread(String lockKey) {
-        return redissonClient.getLock(lockKey).isHeldByCurrentThread();
+        return getLock(lockKey).isHeldByCurrentThread();
+    }
+
+    @Override
+    public boolean isHeldBy(String lockKey, long ownerId) {
+        return getLock(lockKey).isHeldByThread(ownerId);
     }
 }
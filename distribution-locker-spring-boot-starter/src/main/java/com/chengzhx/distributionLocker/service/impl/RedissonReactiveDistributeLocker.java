@@ -0,0 +1,82 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.service.ReactiveDistributeLocker;
+import com.chengzhx.distributionLocker.util.RedissonLockUtil;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonReactiveClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Description: 基于RedissonReactiveClient的响应式分布式锁
+ *
+ * @author ChengZhenxing
+ */
+public class RedissonReactiveDistributeLocker implements ReactiveDistributeLocker {
+
+    private final RedissonReactiveClient redissonReactiveClient;
+
+    // 构造函数
+    public RedissonReactiveDistributeLocker(RedissonReactiveClient redissonReactiveClient) {
+        this.redissonReactiveClient = redissonReactiveClient;
+    }
+
+    @Override
+    public Mono<Boolean> tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, long ownerId) {
+        return redissonReactiveClient.getLock(lockKey).tryLock(waitTime, leaseTime, timeUnit, ownerId);
+    }
+
+    @Override
+    public Mono<Void> unLock(String lockKey, long ownerId) {
+        return redissonReactiveClient.getLock(lockKey).unlock(ownerId);
+    }
+
+    @Override
+    public Mono<Boolean> isLocked(String lockKey) {
+        return redissonReactiveClient.getLock(lockKey).isLocked();
+    }
+
+    @Override
+    public <T> Mono<T> withLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<? extends Mono<T>> action) {
+        RLockReactive lock = redissonReactiveClient.getLock(lockKey);
+        return Mono.usingWhen(acquire(lock, waitTime, leaseTime, timeUnit),
+                ownerId -> action.get(),
+                ownerId -> release(lock, ownerId),
+                (ownerId, error) -> release(lock, ownerId),
+                ownerId -> release(lock, ownerId));
+    }
+
+    @Override
+    public <T> Flux<T> withLockMany(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<? extends Flux<T>> action) {
+        RLockReactive lock = redissonReactiveClient.getLock(lockKey);
+        return Flux.usingWhen(acquire(lock, waitTime, leaseTime, timeUnit),
+                ownerId -> action.get(),
+                ownerId -> release(lock, ownerId),
+                (ownerId, error) -> release(lock, ownerId),
+                ownerId -> release(lock, ownerId));
+    }
+
+    /**
+     * 每次订阅生成新的持有者id并获取锁，成功时发出持有者id
+     */
+    private static Mono<Long> acquire(RLockReactive lock, long waitTime, long leaseTime, TimeUnit timeUnit) {
+        return Mono.defer(() -> {
+            long ownerId = RedissonLockUtil.newAsyncOwnerId();
+            return lock.tryLock(waitTime, leaseTime, timeUnit, ownerId)
+                    .flatMap(acquired -> acquired
+                            ? Mono.just(ownerId)
+                            : Mono.<Long>error(new DistributionLockException("获取分布式锁失败")));
+        });
+    }
+
+    /**
+     * 释放锁失败（例如持有时间已过期）不影响业务结果
+     */
+    private static Mono<Void> release(RLockReactive lock, long ownerId) {
+        return lock.unlock(ownerId).onErrorResume(e -> Mono.empty());
+    }
+}
@@ -0,0 +1,177 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Description: 按等待方式获取Redisson锁，持有者由ownerId指定，供同步锁、本地合并锁和限流共用
+ *
+ * @author ChengZhenxing
+ */
+final class WaitStrategySupport {
+
+    /**
+     * SPIN_THEN_PARK在订阅之前立即重试的次数
+     */
+    private static final int SPIN_ATTEMPTS = 3;
+
+    /**
+     * BACKOFF的初始间隔和最大间隔，单位纳秒
+     */
+    private static final long BACKOFF_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(2L);
+
+    private static final long BACKOFF_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+
+    /**
+     * retry中一次尝试成功时的返回值
+     */
+    static final long ACQUIRED = Long.MIN_VALUE;
+
+    private WaitStrategySupport() {
+    }
+
+    /**
+     * 按等待方式获取锁
+     *
+     * @param lock         锁
+     * @param ownerId      持有者id
+     * @param waitNanos    等待时间，单位纳秒
+     * @param leaseTime    锁的过期时间，小于等于0时由看门狗续期
+     * @param timeUnit     leaseTime的时间单位
+     * @param waitStrategy 等待方式
+     * @return true-获取成功 false-获取失败或被中断
+     * @throws DistributionLockException Redis请求失败
+     */
+    static boolean tryLock(RLock lock, long ownerId, long waitNanos, long leaseTime, TimeUnit timeUnit, WaitStrategy waitStrategy) {
+        long leaseMillis = leaseTime > 0 ? timeUnit.toMillis(leaseTime) : -1L;
+        long deadline = System.nanoTime() + waitNanos;
+        switch (waitStrategy) {
+            case FAIL_FAST:
+                return attempt(lock, ownerId, 0L, leaseMillis);
+            case SPIN_THEN_PARK:
+                for (int i = 0; i < SPIN_ATTEMPTS; i++) {
+                    if (attempt(lock, ownerId, 0L, leaseMillis)) {
+                        return true;
+                    }
+                    if (Thread.currentThread().isInterrupted() || deadline - System.nanoTime() <= 0) {
+                        return false;
+                    }
+                    Thread.yield();
+                }
+                return attempt(lock, ownerId, remainingMillis(deadline), leaseMillis);
+            case BACKOFF:
+                long backoff = BACKOFF_MIN_NANOS;
+                while (true) {
+                    if (attempt(lock, ownerId, 0L, leaseMillis)) {
+                        return true;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(Math.min(remaining, jitter(backoff)));
+                    if (Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                    backoff = Math.min(backoff << 1, BACKOFF_MAX_NANOS);
+                }
+            default:
+                return attempt(lock, ownerId, TimeUnit.NANOSECONDS.toMillis(waitNanos), leaseMillis);
+        }
+    }
+
+    /**
+     * 重复执行一次脚本尝试，直到获取成功、等待超时或被中断，用于没有释放通知的多key锁和限流
+     *
+     * @param waitMillis   等待时间，单位毫秒
+     * @param waitStrategy 等待方式，决定两次尝试之间的间隔
+     * @param maxMillis    两次尝试之间的最大间隔，单位毫秒
+     * @param attempt      一次尝试，获取成功返回ACQUIRED，否则返回占用者的剩余过期时间
+     * @return true-获取成功 false-获取失败
+     */
+    static boolean retry(long waitMillis, WaitStrategy waitStrategy, long maxMillis, LongSupplier attempt) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        int attempts = 0;
+        while (true) {
+            long ttl = attempt.getAsLong();
+            if (ttl == ACQUIRED) {
+                return true;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || waitStrategy == WaitStrategy.FAIL_FAST) {
+                return false;
+            }
+            // 等待占用者释放或过期，但不超过剩余等待时间
+            long pause = retryPauseMillis(waitStrategy, ++attempts, ttl, maxMillis);
+            if (pause <= 0) {
+                Thread.yield();
+                continue;
+            }
+            try {
+                Thread.sleep(Math.min(pause, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 多key加锁两次重试之间的间隔，多key加锁没有释放通知，PUBSUB和SPIN_THEN_PARK按占用者的剩余过期时间等待
+     *
+     * @param waitStrategy 等待方式
+     * @param attempts     已经失败的次数，从1开始
+     * @param ttlMillis    占用者的剩余过期时间，单位毫秒
+     * @param maxMillis    最大间隔，单位毫秒
+     * @return 间隔，单位毫秒
+     */
+    static long retryPauseMillis(WaitStrategy waitStrategy, int attempts, long ttlMillis, long maxMillis) {
+        if (waitStrategy == WaitStrategy.BACKOFF) {
+            long backoff = BACKOFF_MIN_NANOS << Math.min(attempts - 1, 16);
+            return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(jitter(Math.min(backoff, BACKOFF_MAX_NANOS))));
+        }
+        if (waitStrategy == WaitStrategy.SPIN_THEN_PARK && attempts <= SPIN_ATTEMPTS) {
+            return 0L;
+        }
+        return ttlMillis > 0 ? Math.min(ttlMillis, maxMillis) : maxMillis;
+    }
+
+    /**
+     * 在[backoff/2, backoff]内随机取值，避免多个等待者同时重试
+     */
+    private static long jitter(long backoff) {
+        long half = backoff >> 1;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private static long remainingMillis(long deadline) {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private static boolean attempt(RLock lock, long ownerId, long waitMillis, long leaseMillis) {
+        RFuture<Boolean> future = lock.tryLockAsync(waitMillis, leaseMillis, TimeUnit.MILLISECONDS, ownerId);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // 放弃等待，若之后仍然获取成功则立即释放，避免锁一直占用到过期
+            future.whenComplete((acquired, error) -> {
+                if (Boolean.TRUE.equals(acquired)) {
+                    lock.unlockAsync(ownerId);
+                }
+            });
+            return false;
+        } catch (ExecutionException e) {
+            // Redis请求失败不是竞争失败，不能当作未获取到锁
+            throw new DistributionLockException("获取锁[" + lock.getName() + "]时Redis请求失败", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.chengzhx.distributionLocker.spi;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 锁后端SPI，与具体的锁实现（Redisson、内存等）无关
+ * <p>
+ * 切面和业务代码只依赖此接口，通过redisson.backend选择具体实现
+ *
+ * @author ChengZhenxing
+ */
+public interface LockBackend {
+
+    /**
+     * 尝试获取锁，锁的持有者为request中的owner，未指定时为当前线程
+     *
+     * @param lockKey 锁的key
+     * @param request 获取锁的参数
+     * @return 获取成功返回锁句柄，获取失败返回null
+     */
+    LockHandle tryAcquire(String lockKey, LockRequest request);
+
+    /**
+     * 同时获取多把锁，全部获取成功才算成功
+     *
+     * @param lockKeys 锁的key集合
+     * @param request  获取锁的参数
+     * @return 获取成功返回包含所有key的锁句柄，获取失败返回null
+     */
+    LockHandle tryAcquireAll(Collection<String> lockKeys, LockRequest request);
+
+    /**
+     * 异步获取锁，持有者为request中的owner，未指定时创建一个新的持有者；锁可以在任意线程释放
+     * <p>
+     * 默认实现在调用线程上同步获取，支持异步加锁的实现应当在等待期间不占用线程
+     *
+     * @param lockKey 锁的key
+     * @param request 获取锁的参数
+     * @return 获取成功时完成为锁句柄，获取失败时完成为null
+     */
+    default CompletableFuture<LockHandle> tryAcquireAsync(String lockKey, LockRequest request) {
+        LockRequest owned = request.getOwner() == null ? request.withOwner(LockOwner.newOwner()) : request;
+        try {
+            return CompletableFuture.completedFuture(tryAcquire(lockKey, owned));
+        } catch (RuntimeException e) {
+            CompletableFuture<LockHandle> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * 尝试获取锁，锁的持有者为当前线程，等待方式为PUBSUB
+     *
+     * @param lockKey   锁的key
+     * @param timeUnit  时间单位
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @return 获取成功返回锁句柄，获取失败返回null
+     */
+    default LockHandle tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return tryAcquire(lockKey, LockRequest.of(timeUnit, waitTime, leaseTime));
+    }
+
+    /**
+     * 同时获取多把锁，全部获取成功才算成功，等待方式为PUBSUB
+     *
+     * @param lockKeys  锁的key集合
+     * @param timeUnit  时间单位
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @return 获取成功返回包含所有key的锁句柄，获取失败返回null
+     */
+    default LockHandle tryAcquireAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return tryAcquireAll(lockKeys, LockRequest.of(timeUnit, waitTime, leaseTime));
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param handle 获取锁时返回的句柄
+     * @return true-释放成功 false-锁已经不被该句柄持有（例如持有时间已过期）
+     */
+    boolean release(LockHandle handle);
+
+    /**
+     * 把句柄持有的锁的过期时间重新设置为leaseTime，由续期线程调用，不要求是加锁线程
+     *
+     * @param handle    获取锁时返回的句柄
+     * @param timeUnit  时间单位
+     * @param leaseTime 新的过期时间
+     * @return true-续期成功 false-锁已经不被该句柄持有
+     */
+    boolean renew(LockHandle handle, TimeUnit timeUnit, long leaseTime);
+
+    /**
+     * 批量续期，支持pipeline的实现应当把所有请求放在一次往返中发送
+     *
+     * @param handles    锁句柄
+     * @param timeUnit   时间单位
+     * @param leaseTimes 与handles一一对应的新的过期时间
+     * @return 与handles顺序一致，true-续期成功 false-锁已经不被该句柄持有
+     */
+    boolean[] renewAll(List<LockHandle> handles, TimeUnit timeUnit, long[] leaseTimes);
+
+    /**
+     * 锁是否被任意一个持有者持有
+     *
+     * @param lockKey 锁的key
+     * @return true-被锁 false-未被锁
+     */
+    boolean isLocked(String lockKey);
+}
@@ -0,0 +1,93 @@
+package com.chengzhx.distributionLocker.spi;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description: 获取成功后的锁句柄，与具体的锁实现无关
+ * <p>
+ * 释放时把句柄交回获取它的LockBackend即可，不需要再通过key查询锁
+ *
+ * @author ChengZhenxing
+ */
+@Getter
+public final class LockHandle {
+
+    /**
+     * 句柄持有的锁的key，单key加锁时只有一个元素
+     */
+    private final List<String> lockKeys;
+
+    /**
+     * 锁的持有者id
+     */
+    private final long ownerId;
+
+    /**
+     * 获取成功的时间（System.nanoTime）
+     */
+    private final long acquiredAt;
+
+    /**
+     * 锁实现自己的对象，例如Redisson的RLock，其他实现可以为null
+     */
+    private final Object nativeLock;
+
+    /**
+     * 每个key的fencing token，未要求生成token时为空
+     */
+    private final Map<String, Long> fencingTokens;
+
+    public LockHandle(List<String> lockKeys, long ownerId, Object nativeLock, Map<String, Long> fencingTokens) {
+        this.lockKeys = Collections.unmodifiableList(lockKeys);
+        this.ownerId = ownerId;
+        this.acquiredAt = System.nanoTime();
+        this.nativeLock = nativeLock;
+        this.fencingTokens = Collections.unmodifiableMap(fencingTokens);
+    }
+
+    public LockHandle(List<String> lockKeys, long ownerId, Object nativeLock) {
+        this(lockKeys, ownerId, nativeLock, Collections.emptyMap());
+    }
+
+    public LockHandle(String lockKey, long ownerId, Object nativeLock) {
+        this(Collections.singletonList(lockKey), ownerId, nativeLock);
+    }
+
+    /**
+     * 句柄的第一个key，单key加锁时即为锁的key
+     *
+     * @return 锁的key
+     */
+    public String getLockKey() {
+        return lockKeys.get(0);
+    }
+
+    /**
+     * 指定key的fencing token
+     *
+     * @param lockKey 锁的key
+     * @return token，未生成token时返回0
+     */
+    public long getFencingToken(String lockKey) {
+        Long token = fencingTokens.get(lockKey);
+        return token == null ? 0L : token;
+    }
+
+    /**
+     * 第一个key的fencing token，单key加锁时即为锁的token
+     *
+     * @return token，未生成token时返回0
+     */
+    public long getFencingToken() {
+        return getFencingToken(getLockKey());
+    }
+
+    @Override
+    public String toString() {
+        return "LockHandle" + lockKeys + "@" + ownerId;
+    }
+}
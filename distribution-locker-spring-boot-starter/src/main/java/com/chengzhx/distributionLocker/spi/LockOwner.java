@@ -0,0 +1,55 @@
+package com.chengzhx.distributionLocker.spi;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: 与线程无关的锁持有者
+ * <p>
+ * 默认情况下锁的持有者是加锁的线程，只能在同一个线程释放；使用LockOwner加锁时持有者是这个对象，
+ * 可以在一个任务中获取、在另一个任务（其他线程、CompletableFuture的回调、虚拟线程）中释放。
+ * 同一个LockOwner重复获取同一把锁是重入
+ *
+ * @author ChengZhenxing
+ */
+@Getter
+public final class LockOwner {
+
+    private static final AtomicLong OWNER_SEQUENCE = new AtomicLong();
+
+    /**
+     * 持有者id，为负数，不会与任何线程id冲突
+     */
+    private final long id;
+
+    private LockOwner(long id) {
+        this.id = id;
+    }
+
+    /**
+     * 创建一个新的持有者
+     *
+     * @return LockOwner
+     */
+    public static LockOwner newOwner() {
+        return new LockOwner(newOwnerId());
+    }
+
+    /**
+     * 生成一个与线程无关的持有者id，不需要LockOwner对象时直接使用
+     * <p>
+     * 异步调用可能在同一个事件循环线程上交错执行，不能用线程id区分持有者；
+     * 生成的id为负数，不会与任何线程id冲突
+     *
+     * @return 持有者id
+     */
+    public static long newOwnerId() {
+        return OWNER_SEQUENCE.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "LockOwner@" + id;
+    }
+}
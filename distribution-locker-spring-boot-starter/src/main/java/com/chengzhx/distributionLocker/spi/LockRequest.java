@@ -0,0 +1,89 @@
+package com.chengzhx.distributionLocker.spi;
+
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 获取锁的参数，与具体的锁实现无关
+ * <p>
+ * 对象不可变，同一个加锁点（例如一个被注解的方法）可以只创建一次并重复使用
+ *
+ * @author ChengZhenxing
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class LockRequest {
+
+    /**
+     * 时间单位
+     */
+    @Builder.Default
+    private final TimeUnit timeUnit = TimeUnit.SECONDS;
+
+    /**
+     * 等待时间
+     */
+    private final long waitTime;
+
+    /**
+     * 锁的过期时间，小于等于0时由锁实现决定（Redisson为看门狗续期）
+     */
+    private final long leaseTime;
+
+    /**
+     * 等待方式
+     */
+    @Builder.Default
+    private final WaitStrategy waitStrategy = WaitStrategy.PUBSUB;
+
+    /**
+     * 锁的模式
+     */
+    @Builder.Default
+    private final LockMode lockMode = LockMode.EXCLUSIVE;
+
+    /**
+     * 是否在获取成功时生成fencing token
+     */
+    private final boolean fencing;
+
+    /**
+     * 锁的持有者，为null时为加锁的线程
+     */
+    private final LockOwner owner;
+
+    /**
+     * 只指定时间的请求，等待方式为PUBSUB
+     *
+     * @param timeUnit  时间单位
+     * @param waitTime  等待时间
+     * @param leaseTime 锁的过期时间
+     * @return LockRequest
+     */
+    public static LockRequest of(TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return LockRequest.builder().timeUnit(timeUnit).waitTime(waitTime).leaseTime(leaseTime).build();
+    }
+
+    /**
+     * 其他参数相同、持有者为owner的请求
+     *
+     * @param owner 锁的持有者
+     * @return LockRequest
+     */
+    public LockRequest withOwner(LockOwner owner) {
+        return toBuilder().owner(owner).build();
+    }
+
+    /**
+     * 本次加锁的持有者id，未指定owner时为当前线程的id
+     *
+     * @return 持有者id
+     */
+    public long getOwnerId() {
+        return owner == null ? Thread.currentThread().getId() : owner.getId();
+    }
+}
@@ -0,0 +1,495 @@
+package com.chengzhx.distributionLocker.spi.impl;
+
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.spi.LockBackend;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.LockRequest;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Description: JVM内存中的锁后端，适用于单节点部署和单元测试，不需要Redis
+ * <p>
+ * key按hash分配到固定数量的分段（stripe），同一分段内的加锁、释放和等待由分段锁保护；
+ * 锁的过期由时间轮（HashedWheelTimer）负责清理并唤醒等待者，加锁时也会顺带检查过期时间
+ *
+ * @author ChengZhenxing
+ */
+public class InMemoryLockBackend implements LockBackend, AutoCloseable {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * fencing计数器默认的空闲过期时间
+     */
+    private static final long DEFAULT_FENCE_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Stripe[] stripes;
+
+    private final int stripeMask;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 每个key的fencing计数器，与Redis中的计数器一样不随锁释放而删除，空闲一段时间后由时间轮移除
+     */
+    private final ConcurrentMap<String, Fence> fences = new ConcurrentHashMap<>();
+
+    /**
+     * fencing计数器的空闲过期时间，单位纳秒
+     */
+    private final long fenceIdleNanos;
+
+    /**
+     * 创建时的单调时钟，计数器的起点按相对这个时间计算
+     */
+    private final long createdAt = System.nanoTime();
+
+    private final HashedWheelTimer timer;
+
+    public InMemoryLockBackend() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes 分段数量，会向上取整为2的幂
+     */
+    public InMemoryLockBackend(int stripes) {
+        this(stripes, DEFAULT_FENCE_IDLE_MILLIS);
+    }
+
+    /**
+     * @param stripes         分段数量，会向上取整为2的幂
+     * @param fenceIdleMillis fencing计数器多久没有生成token后移除，单位毫秒
+     */
+    public InMemoryLockBackend(int stripes, long fenceIdleMillis) {
+        this.fenceIdleNanos = TimeUnit.MILLISECONDS.toNanos(fenceIdleMillis);
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeMask = size - 1;
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("in-memory-lock-timer", true), 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public LockHandle tryAcquire(String lockKey, LockRequest request) {
+        long ownerId = request.getOwnerId();
+        if (!acquire(lockKey, ownerId, deadline(request), leaseNanos(request), isShared(request))) {
+            return null;
+        }
+        if (request.isFencing()) {
+            List<String> keys = Collections.singletonList(lockKey);
+            return new LockHandle(keys, ownerId, null, nextFencingTokens(keys));
+        }
+        return new LockHandle(lockKey, ownerId, null);
+    }
+
+    @Override
+    public LockHandle tryAcquireAll(Collection<String> lockKeys, LockRequest request) {
+        long ownerId = request.getOwnerId();
+        long deadline = deadline(request);
+        long leaseNanos = leaseNanos(request);
+        boolean shared = isShared(request);
+        // 按固定顺序加锁，避免交叉等待
+        List<String> keys = new ArrayList<>(new TreeSet<>(lockKeys));
+        for (int i = 0; i < keys.size(); i++) {
+            if (!acquire(keys.get(i), ownerId, deadline, leaseNanos, shared)) {
+                for (int j = 0; j < i; j++) {
+                    release(keys.get(j), ownerId);
+                }
+                return null;
+            }
+        }
+        return new LockHandle(keys, ownerId, null, request.isFencing() ? nextFencingTokens(keys) : Collections.emptyMap());
+    }
+
+    private Map<String, Long> nextFencingTokens(List<String> keys) {
+        Map<String, Long> tokens = new LinkedHashMap<>();
+        for (String lockKey : keys) {
+            tokens.put(lockKey, nextFencingToken(lockKey));
+        }
+        return tokens;
+    }
+
+    private long nextFencingToken(String lockKey) {
+        while (true) {
+            Fence fence = fences.computeIfAbsent(lockKey, this::newFence);
+            synchronized (fence) {
+                if (fence.removed) {
+                    // 刚因空闲被移除，重新创建
+                    continue;
+                }
+                fence.lastUsed = System.nanoTime();
+                return ++fence.value;
+            }
+        }
+    }
+
+    /**
+     * 新计数器的起点为创建时间（相对本后端创建的纳秒数）按空闲过期时间向下取整：第一个空闲周期内创建的计数器从0开始；
+     * 重新创建的计数器距离旧计数器最后一次使用至少一个空闲周期，起点大于旧计数器的最后一次使用时间，
+     * 而旧计数器每纳秒最多生成一个token，因此token仍然单调递增
+     */
+    private Fence newFence(String lockKey) {
+        long elapsed = System.nanoTime() - createdAt;
+        Fence fence = new Fence(elapsed / fenceIdleNanos * fenceIdleNanos);
+        timer.newTimeout(timeout -> expireFence(lockKey, fence), fenceIdleNanos, TimeUnit.NANOSECONDS);
+        return fence;
+    }
+
+    private void expireFence(String lockKey, Fence fence) {
+        long idle;
+        synchronized (fence) {
+            idle = System.nanoTime() - fence.lastUsed;
+            if (idle >= fenceIdleNanos) {
+                fence.removed = true;
+                fences.remove(lockKey, fence);
+                return;
+            }
+        }
+        timer.newTimeout(timeout -> expireFence(lockKey, fence), fenceIdleNanos - idle, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean release(LockHandle handle) {
+        boolean released = true;
+        for (String lockKey : handle.getLockKeys()) {
+            released &= release(lockKey, handle.getOwnerId());
+        }
+        return released;
+    }
+
+    @Override
+    public boolean renew(LockHandle handle, TimeUnit timeUnit, long leaseTime) {
+        long leaseNanos = leaseTime > 0 ? timeUnit.toNanos(leaseTime) : -1L;
+        boolean renewed = true;
+        for (String lockKey : handle.getLockKeys()) {
+            renewed &= renew(lockKey, handle.getOwnerId(), leaseNanos);
+        }
+        return renewed;
+    }
+
+    @Override
+    public boolean[] renewAll(List<LockHandle> handles, TimeUnit timeUnit, long[] leaseTimes) {
+        // 内存中续期没有往返开销，逐个续期即可
+        boolean[] renewed = new boolean[handles.size()];
+        for (int i = 0; i < handles.size(); i++) {
+            renewed[i] = renew(handles.get(i), timeUnit, leaseTimes[i]);
+        }
+        return renewed;
+    }
+
+    @Override
+    public boolean isLocked(String lockKey) {
+        Entry entry = entries.get(lockKey);
+        return entry != null && !entry.isExpired(System.nanoTime());
+    }
+
+    @Override
+    public void close() {
+        timer.stop();
+    }
+
+    /**
+     * 等待的截止时间，FAIL_FAST只尝试一次；释放和过期都会通过Condition唤醒等待者，其余等待方式没有区别
+     */
+    private static long deadline(LockRequest request) {
+        long now = System.nanoTime();
+        if (request.getWaitStrategy() == WaitStrategy.FAIL_FAST) {
+            return now;
+        }
+        return now + request.getTimeUnit().toNanos(request.getWaitTime());
+    }
+
+    private static long leaseNanos(LockRequest request) {
+        return request.getLeaseTime() > 0 ? request.getTimeUnit().toNanos(request.getLeaseTime()) : -1L;
+    }
+
+    /**
+     * READ为共享锁，其余模式都是互斥锁；分段锁本身不公平，FAIR与EXCLUSIVE相同
+     */
+    private static boolean isShared(LockRequest request) {
+        return request.getLockMode() == LockMode.READ;
+    }
+
+    /**
+     * @param shared true-共享（读）锁，可以与其他共享锁以及自己持有的互斥锁同时持有
+     */
+    private boolean acquire(String lockKey, long ownerId, long deadline, long leaseNanos, boolean shared) {
+        Stripe stripe = stripeOf(lockKey);
+        stripe.lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                Entry entry = entries.get(lockKey);
+                if (entry != null && entry.isExpired(now)) {
+                    remove(lockKey, entry);
+                    entry = null;
+                }
+                if (entry == null) {
+                    entry = new Entry(ownerId, shared);
+                    entry.hold(ownerId, now, leaseNanos);
+                    scheduleExpiry(lockKey, entry);
+                    entries.put(lockKey, entry);
+                    return true;
+                }
+                if (shared ? entry.shared || entry.ownerId == ownerId : !entry.shared && entry.ownerId == ownerId) {
+                    // 重入或共享，过期时间只延长不缩短
+                    entry.hold(ownerId, now, leaseNanos);
+                    scheduleExpiry(lockKey, entry);
+                    return true;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    return false;
+                }
+                // 最多等到当前持有者过期，过期时间由时间轮唤醒或者下一轮循环检查
+                long untilExpiry = entry.deadline == Long.MAX_VALUE ? remaining : entry.deadline - now;
+                stripe.released.awaitNanos(Math.min(remaining, untilExpiry));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private boolean release(String lockKey, long ownerId) {
+        Stripe stripe = stripeOf(lockKey);
+        stripe.lock.lock();
+        try {
+            Entry entry = entries.get(lockKey);
+            long now = System.nanoTime();
+            if (entry == null || entry.isExpired(now)) {
+                return false;
+            }
+            Holder holder = entry.holders.get(ownerId);
+            if (holder == null) {
+                return false;
+            }
+            if (holder.isExpired(now)) {
+                // 该持有者的过期时间已过，只是其他读者仍在持有
+                entry.holders.remove(ownerId);
+                scheduleExpiry(lockKey, entry);
+                return false;
+            }
+            if (--holder.holdCount == 0) {
+                entry.holders.remove(ownerId);
+                if (entry.holders.isEmpty()) {
+                    remove(lockKey, entry);
+                } else {
+                    // 剩余读者的过期时间可能更短
+                    scheduleExpiry(lockKey, entry);
+                }
+            }
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private boolean renew(String lockKey, long ownerId, long leaseNanos) {
+        Stripe stripe = stripeOf(lockKey);
+        stripe.lock.lock();
+        try {
+            Entry entry = entries.get(lockKey);
+            long now = System.nanoTime();
+            if (entry == null || entry.isExpired(now)) {
+                return false;
+            }
+            Holder holder = entry.holders.get(ownerId);
+            if (holder == null || holder.isExpired(now)) {
+                return false;
+            }
+            holder.extend(now, leaseNanos, true);
+            scheduleExpiry(lockKey, entry);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 移除锁并唤醒同一分段的等待者，调用方必须持有分段锁
+     */
+    private void remove(String lockKey, Entry entry) {
+        entries.remove(lockKey, entry);
+        if (entry.expiry != null) {
+            entry.expiry.cancel();
+        }
+        stripeOf(lockKey).released.signalAll();
+    }
+
+    /**
+     * 按所有持有者中最晚的过期时间重新设置锁的过期时间，调用方必须持有分段锁
+     */
+    private void scheduleExpiry(String lockKey, Entry entry) {
+        long deadline = entry.latestDeadline();
+        if (deadline == entry.deadline && (entry.expiry != null || deadline == Long.MAX_VALUE)) {
+            return;
+        }
+        if (entry.expiry != null) {
+            entry.expiry.cancel();
+            entry.expiry = null;
+        }
+        entry.deadline = deadline;
+        if (deadline != Long.MAX_VALUE) {
+            entry.expiry = timer.newTimeout(timeout -> expire(lockKey, entry),
+                    Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void expire(String lockKey, Entry entry) {
+        Stripe stripe = stripeOf(lockKey);
+        stripe.lock.lock();
+        try {
+            if (entries.get(lockKey) == entry && entry.isExpired(System.nanoTime())) {
+                remove(lockKey, entry);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeOf(String lockKey) {
+        int h = lockKey.hashCode();
+        return stripes[(h ^ (h >>> 16)) & stripeMask];
+    }
+
+    /**
+     * 一个key的fencing计数器，只在对象锁内读写
+     */
+    private static final class Fence {
+
+        private long value;
+
+        private long lastUsed = System.nanoTime();
+
+        /**
+         * 已因空闲被移除，之后需要重新创建
+         */
+        private boolean removed;
+
+        private Fence(long value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition released = lock.newCondition();
+    }
+
+    /**
+     * 一把被持有的锁，字段只在分段锁内修改
+     */
+    private static final class Entry {
+
+        private final long ownerId;
+
+        /**
+         * 是否为共享（读）锁，共享锁的ownerId为第一个读者
+         */
+        private final boolean shared;
+
+        /**
+         * 持有者id -> 持有状态，互斥锁只有ownerId一个持有者
+         */
+        private final Map<Long, Holder> holders = new HashMap<>(2);
+
+        /**
+         * 所有持有者中最晚的过期时间（System.nanoTime），不过期时为Long.MAX_VALUE
+         */
+        private volatile long deadline;
+
+        private Timeout expiry;
+
+        private Entry(long ownerId, boolean shared) {
+            this.ownerId = ownerId;
+            this.shared = shared;
+        }
+
+        private void hold(long ownerId, long now, long leaseNanos) {
+            Holder holder = holders.get(ownerId);
+            if (holder == null) {
+                holder = new Holder();
+                holder.deadline = leaseNanos > 0 ? now + leaseNanos : Long.MAX_VALUE;
+                holders.put(ownerId, holder);
+            } else {
+                holder.extend(now, leaseNanos, false);
+            }
+            holder.holdCount++;
+        }
+
+        private long latestDeadline() {
+            long latest = Long.MIN_VALUE;
+            for (Holder holder : holders.values()) {
+                if (holder.deadline == Long.MAX_VALUE) {
+                    return Long.MAX_VALUE;
+                }
+                latest = latest == Long.MIN_VALUE || holder.deadline - latest > 0 ? holder.deadline : latest;
+            }
+            return latest;
+        }
+
+        private boolean isExpired(long now) {
+            return deadline != Long.MAX_VALUE && now - deadline >= 0;
+        }
+    }
+
+    /**
+     * 一个持有者的持有次数和过期时间
+     */
+    private static final class Holder {
+
+        private int holdCount;
+
+        /**
+         * 过期时间（System.nanoTime），不过期时为Long.MAX_VALUE
+         */
+        private long deadline;
+
+        /**
+         * 延长过期时间，已有的持有时间不会被更短的leaseTime截断
+         *
+         * @param unbounded leaseTime小于等于0时是否改为不过期；重入时为false，保持外层的过期时间
+         */
+        private void extend(long now, long leaseNanos, boolean unbounded) {
+            if (leaseNanos <= 0) {
+                if (unbounded) {
+                    deadline = Long.MAX_VALUE;
+                }
+                return;
+            }
+            long candidate = now + leaseNanos;
+            if (deadline != Long.MAX_VALUE && candidate - deadline > 0) {
+                deadline = candidate;
+            }
+        }
+
+        private boolean isExpired(long now) {
+            return deadline != Long.MAX_VALUE && now - deadline >= 0;
+        }
+    }
+}
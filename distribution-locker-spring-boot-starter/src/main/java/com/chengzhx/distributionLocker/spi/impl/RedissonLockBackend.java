@@ -0,0 +1,357 @@
+package com.chengzhx.distributionLocker.spi.impl;
+
+import com.chengzhx.distributionLocker.service.DistributeLocker;
+import com.chengzhx.distributionLocker.service.LeaseExtension;
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockBackend;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.LockOwner;
+import com.chengzhx.distributionLocker.spi.LockRequest;
+import org.redisson.api.RLock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Description: 基于DistributeLocker（Redisson）的锁后端
+ *
+ * @author ChengZhenxing
+ */
+public class RedissonLockBackend implements LockBackend {
+
+    /**
+     * 不指定leaseTime的读者加入共享读锁的窗口，与Redisson看门狗的默认超时一致
+     */
+    private static final long UNBOUNDED_SHARE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final DistributeLocker locker;
+
+    /**
+     * key -> 本节点共享的Redis读锁
+     */
+    private final ConcurrentMap<String, ReadShare> readShares = new ConcurrentHashMap<>();
+
+    // 构造函数
+    public RedissonLockBackend(DistributeLocker locker) {
+        this.locker = locker;
+    }
+
+    @Override
+    public LockHandle tryAcquire(String lockKey, LockRequest request) {
+        if (request.isFencing()) {
+            return tryAcquireFenced(Collections.singletonList(lockKey), request);
+        }
+        switch (request.getLockMode()) {
+            case READ:
+                return tryAcquireRead(lockKey, request);
+            case WRITE:
+                drainReadShare(lockKey);
+                return tryAcquire(lockKey, locker.getReadWriteLock(lockKey).writeLock(), request);
+            case FAIR:
+                return tryAcquire(lockKey, locker.getFairLock(lockKey), request);
+            default:
+                break;
+        }
+        if (request.getOwner() != null) {
+            // 本地合并的锁由加锁线程持有，指定了持有者时直接加Redis锁
+            return tryAcquire(lockKey, locker.getLock(lockKey), request);
+        }
+        RLock lock = locker.tryAcquire(lockKey, request.getTimeUnit(), request.getWaitTime(), request.getLeaseTime(),
+                request.getWaitStrategy());
+        if (lock == null) {
+            return null;
+        }
+        return new LockHandle(lockKey, Thread.currentThread().getId(), lock);
+    }
+
+    @Override
+    public LockHandle tryAcquireAll(Collection<String> lockKeys, LockRequest request) {
+        if (request.isFencing()) {
+            return tryAcquireFenced(lockKeys, request);
+        }
+        long ownerId = request.getOwnerId();
+        if (!locker.tryLockAll(lockKeys, request.getTimeUnit(), request.getWaitTime(), request.getLeaseTime(),
+                request.getWaitStrategy(), ownerId)) {
+            return null;
+        }
+        return new LockHandle(new ArrayList<>(lockKeys), ownerId, null);
+    }
+
+    /**
+     * 加锁和生成token在同一次脚本调用中完成，锁由请求的持有者直接持有，释放时走unlockAll
+     */
+    private LockHandle tryAcquireFenced(Collection<String> lockKeys, LockRequest request) {
+        long ownerId = request.getOwnerId();
+        Map<String, Long> tokens = locker.tryLockFenced(lockKeys, request.getTimeUnit(), request.getWaitTime(),
+                request.getLeaseTime(), request.getWaitStrategy(), ownerId);
+        if (tokens == null) {
+            return null;
+        }
+        return new LockHandle(new ArrayList<>(tokens.keySet()), ownerId, null, tokens);
+    }
+
+    /**
+     * 获取写锁、公平锁或指定了持有者的锁，释放时按持有者id解锁，可以在其他线程释放
+     */
+    private LockHandle tryAcquire(String lockKey, RLock lock, LockRequest request) {
+        long ownerId = request.getOwnerId();
+        if (!locker.tryLock(lock, ownerId, request.getTimeUnit(), request.getWaitTime(), request.getLeaseTime(),
+                request.getWaitStrategy())) {
+            return null;
+        }
+        return new LockHandle(lockKey, ownerId, new OwnedLock(lock));
+    }
+
+    /**
+     * 单key、不生成token的请求用Redisson的异步加锁，等待期间不占用线程；其他请求在调用线程上同步获取
+     */
+    @Override
+    public CompletableFuture<LockHandle> tryAcquireAsync(String lockKey, LockRequest request) {
+        LockRequest owned = request.getOwner() == null ? request.withOwner(LockOwner.newOwner()) : request;
+        if (owned.isFencing() || owned.getLockMode() == LockMode.READ) {
+            return LockBackend.super.tryAcquireAsync(lockKey, owned);
+        }
+        if (owned.getLockMode() == LockMode.WRITE) {
+            drainReadShare(lockKey);
+        }
+        RLock lock = owned.getLockMode() == LockMode.WRITE ? locker.getReadWriteLock(lockKey).writeLock()
+                : owned.getLockMode() == LockMode.FAIR ? locker.getFairLock(lockKey) : locker.getLock(lockKey);
+        long ownerId = owned.getOwnerId();
+        TimeUnit timeUnit = owned.getTimeUnit();
+        // 异步加锁只能订阅释放通知，FAIL_FAST时不等待
+        long waitTime = owned.getWaitStrategy() == WaitStrategy.FAIL_FAST ? 0L : owned.getWaitTime();
+        long leaseTime = owned.getLeaseTime() > 0 ? owned.getLeaseTime() : -1L;
+        return lock.tryLockAsync(waitTime, leaseTime, timeUnit, ownerId).toCompletableFuture()
+                .thenApply(acquired -> acquired ? new LockHandle(lockKey, ownerId, new OwnedLock(lock)) : null);
+    }
+
+    /**
+     * 获取读锁：本节点同一个key的读者共享一次Redis读锁，第一个读者负责获取，之后的读者只增加本地计数
+     * <p>
+     * 共享读锁只在获取后的一个leaseTime内接纳新读者，本节点有写者等待时立即停止接纳；
+     * 之后的读者等待已有读者全部释放后重新获取Redis读锁，避免读多的节点一直持有读锁使其他节点的写者饿死。
+     * Redis读锁的过期时间为两倍leaseTime，覆盖窗口内最后加入的读者的完整leaseTime，挂起的读者最多持有这么久
+     */
+    private LockHandle tryAcquireRead(String lockKey, LockRequest request) {
+        long waitNanos = request.getWaitStrategy() == WaitStrategy.FAIL_FAST ? 0L : request.getTimeUnit().toNanos(request.getWaitTime());
+        long leaseNanos = request.getLeaseTime() > 0 ? request.getTimeUnit().toNanos(request.getLeaseTime()) : -1L;
+        long deadline = System.nanoTime() + waitNanos;
+        while (true) {
+            ReadShare share = readShares.computeIfAbsent(lockKey, key -> new ReadShare(locker.getReadWriteLock(key).readLock()));
+            try {
+                if (!share.lock.tryLock(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            try {
+                if (share.closed) {
+                    // 最后一个读者刚释放，重新创建
+                    continue;
+                }
+                if (share.readers == 0) {
+                    long shareLease = leaseNanos > 0 ? leaseNanos * 2 : -1L;
+                    if (!locker.tryLock(share.readLock, share.ownerId, TimeUnit.NANOSECONDS,
+                            Math.max(0L, deadline - System.nanoTime()), shareLease, request.getWaitStrategy())) {
+                        share.closed = true;
+                        readShares.remove(lockKey, share);
+                        share.drained.signalAll();
+                        return null;
+                    }
+                    long now = System.nanoTime();
+                    share.acquiredAt = now;
+                    share.expiresAt = shareLease > 0 ? now + shareLease : Long.MAX_VALUE;
+                } else if (!share.admits(System.nanoTime(), leaseNanos)) {
+                    // 不再接纳新读者，等待已有读者释放后重新获取
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return null;
+                    }
+                    share.drained.awaitNanos(remaining);
+                    continue;
+                }
+                share.readers++;
+                return new LockHandle(lockKey, request.getOwnerId(), share);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                share.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 本节点有写者等待时，共享读锁停止接纳新读者，让已有读者释放后写者能获取
+     */
+    private void drainReadShare(String lockKey) {
+        ReadShare share = readShares.get(lockKey);
+        if (share != null) {
+            share.writerWaiting = true;
+        }
+    }
+
+    private boolean releaseRead(String lockKey, ReadShare share) {
+        share.lock.lock();
+        try {
+            if (--share.readers > 0) {
+                return true;
+            }
+            share.closed = true;
+            readShares.remove(lockKey, share);
+            share.drained.signalAll();
+            return locker.unlock(share.readLock, share.ownerId);
+        } finally {
+            share.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean release(LockHandle handle) {
+        if (handle.getNativeLock() instanceof ReadShare) {
+            return releaseRead(handle.getLockKey(), (ReadShare) handle.getNativeLock());
+        }
+        if (handle.getNativeLock() instanceof OwnedLock) {
+            return locker.unlock(((OwnedLock) handle.getNativeLock()).lock, handle.getOwnerId());
+        }
+        if (handle.getNativeLock() instanceof RLock) {
+            return locker.release((RLock) handle.getNativeLock());
+        }
+        return locker.unlockAll(handle.getLockKeys(), handle.getOwnerId());
+    }
+
+    @Override
+    public boolean renew(LockHandle handle, TimeUnit timeUnit, long leaseTime) {
+        if (handle.getNativeLock() instanceof ReadShare) {
+            ReadShare share = (ReadShare) handle.getNativeLock();
+            if (share.closed || share.expiresAt == Long.MAX_VALUE) {
+                // 未指定leaseTime的共享读锁由看门狗续期
+                return !share.closed;
+            }
+            long now = System.nanoTime();
+            boolean renewed = locker.renew(handle.getLockKeys(), share.ownerId, timeUnit, leaseTime);
+            if (renewed) {
+                share.extend(now + timeUnit.toNanos(leaseTime));
+            }
+            return renewed;
+        }
+        return locker.renew(handle.getLockKeys(), handle.getOwnerId(), timeUnit, leaseTime);
+    }
+
+    @Override
+    public boolean[] renewAll(List<LockHandle> handles, TimeUnit timeUnit, long[] leaseTimes) {
+        long now = System.nanoTime();
+        List<LeaseExtension> extensions = new ArrayList<>(handles.size());
+        for (int i = 0; i < handles.size(); i++) {
+            LockHandle handle = handles.get(i);
+            // 共享读锁的Redis持有者是共享读锁自身的ownerId
+            long ownerId = handle.getNativeLock() instanceof ReadShare
+                    ? ((ReadShare) handle.getNativeLock()).ownerId : handle.getOwnerId();
+            extensions.add(new LeaseExtension(handle.getLockKeys(), ownerId, timeUnit.toMillis(leaseTimes[i])));
+        }
+        boolean[] renewed = locker.renewAll(extensions);
+        for (int i = 0; i < handles.size(); i++) {
+            if (renewed[i] && handles.get(i).getNativeLock() instanceof ReadShare) {
+                ((ReadShare) handles.get(i).getNativeLock()).extend(now + timeUnit.toNanos(leaseTimes[i]));
+            }
+        }
+        return renewed;
+    }
+
+    @Override
+    public boolean isLocked(String lockKey) {
+        return locker.isLocked(lockKey);
+    }
+
+    /**
+     * 按持有者id加的Redis锁，释放不依赖加锁的线程
+     */
+    private static final class OwnedLock {
+
+        private final RLock lock;
+
+        private OwnedLock(RLock lock) {
+            this.lock = lock;
+        }
+    }
+
+    /**
+     * 本节点共享的一次Redis读锁，持有者是独立的ownerId而不是某个读者线程
+     */
+    private static final class ReadShare {
+
+        private final RLock readLock;
+
+        private final long ownerId = LockOwner.newOwnerId();
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * 最后一个读者释放时通知等待重新获取的读者
+         */
+        private final Condition drained = lock.newCondition();
+
+        /**
+         * 当前的读者数量，只在lock内修改
+         */
+        private int readers;
+
+        /**
+         * 获取Redis读锁的时间，只在lock内修改
+         */
+        private long acquiredAt;
+
+        /**
+         * Redis读锁的过期时间，未指定leaseTime时为Long.MAX_VALUE
+         */
+        private volatile long expiresAt;
+
+        /**
+         * 本节点有写者在等待同一个key
+         */
+        private volatile boolean writerWaiting;
+
+        /**
+         * 最后一个读者已释放，之后的读者需要重新创建
+         */
+        private volatile boolean closed;
+
+        private ReadShare(RLock readLock) {
+            this.readLock = readLock;
+        }
+
+        /**
+         * 是否接纳新读者：没有写者等待、仍在加入窗口内，且Redis读锁能覆盖新读者的leaseTime
+         */
+        private boolean admits(long now, long leaseNanos) {
+            if (writerWaiting) {
+                return false;
+            }
+            long window = leaseNanos > 0 ? leaseNanos : UNBOUNDED_SHARE_WINDOW_NANOS;
+            return now - acquiredAt < window && (leaseNanos <= 0 ? expiresAt == Long.MAX_VALUE : now + leaseNanos <= expiresAt);
+        }
+
+        private void extend(long deadline) {
+            lock.lock();
+            try {
+                if (deadline > expiresAt) {
+                    expiresAt = deadline;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.chengzhx.distributionLocker.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description: 加锁事件的采样日志
+ * <p>
+ * 正常的加锁、释放按采样率以DEBUG级别输出；等待时间超过阈值、获取失败以及释放时已过期的事件以WARN级别输出，
+ * 其中获取失败在竞争激烈时会大量出现，每秒最多输出一条，并带上期间未输出的失败次数。
+ * 参数都是基本类型或已有对象，只有真正输出日志时才会格式化和分配内存，未输出时热路径上没有日志开销
+ *
+ * @author ChengZhenxing
+ */
+@Slf4j
+public class LockEventTracer {
+
+    /**
+     * 两条获取失败日志之间的最小间隔，单位纳秒
+     */
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 正常事件的采样率，0表示不输出，1表示全部输出
+     */
+    private final double sampleRate;
+
+    /**
+     * 慢加锁的阈值，单位纳秒
+     */
+    private final long slowAcquireNanos;
+
+    /**
+     * 下一次允许输出获取失败日志的时间（System.nanoTime）
+     */
+    private final AtomicLong nextFailureLogAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * 上一条获取失败日志之后未输出的失败次数
+     */
+    private final LongAdder suppressedFailures = new LongAdder();
+
+    public LockEventTracer(double sampleRate, long slowAcquireMillis) {
+        this.sampleRate = sampleRate;
+        this.slowAcquireNanos = TimeUnit.MILLISECONDS.toNanos(slowAcquireMillis);
+    }
+
+    /**
+     * 获取锁成功
+     *
+     * @param lockKey   锁的key（单key为String，多key为集合）
+     * @param waitNanos 等待时间，单位纳秒
+     */
+    public void onAcquired(Object lockKey, long waitNanos) {
+        if (waitNanos >= slowAcquireNanos) {
+            if (log.isWarnEnabled()) {
+                log.warn("分布式锁[{}]获取成功，等待时间过长[{}]ms", lockKey, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+        } else if (sampled()) {
+            log.debug("分布式锁[{}]获取成功，等待[{}]μs", lockKey, TimeUnit.NANOSECONDS.toMicros(waitNanos));
+        }
+    }
+
+    /**
+     * 获取锁失败，每秒最多输出一条
+     *
+     * @param lockKey   锁的key（单key为String，多key为集合）
+     * @param waitNanos 等待时间，单位纳秒
+     */
+    public void onAcquireFailed(Object lockKey, long waitNanos) {
+        if (!log.isWarnEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long logAt = nextFailureLogAt.get();
+        if (now - logAt < 0 || !nextFailureLogAt.compareAndSet(logAt, now + FAILURE_LOG_INTERVAL_NANOS)) {
+            suppressedFailures.increment();
+            return;
+        }
+        log.warn("分布式锁[{}]获取失败，等待[{}]ms，此前另有[{}]次获取失败未输出", lockKey,
+                TimeUnit.NANOSECONDS.toMillis(waitNanos), suppressedFailures.sumThenReset());
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param lockKey   锁的key（单key为String，多key为集合）
+     * @param holdNanos 持有时间，单位纳秒
+     * @param released  false-释放前锁已过期
+     */
+    public void onReleased(Object lockKey, long holdNanos, boolean released) {
+        if (!released) {
+            if (log.isWarnEnabled()) {
+                log.warn("分布式锁[{}]在释放前已过期，持有[{}]ms", lockKey, TimeUnit.NANOSECONDS.toMillis(holdNanos));
+            }
+        } else if (sampled()) {
+            log.debug("分布式锁[{}]释放成功，持有[{}]μs", lockKey, TimeUnit.NANOSECONDS.toMicros(holdNanos));
+        }
+    }
+
+    private boolean sampled() {
+        if (sampleRate <= 0D || !log.isDebugEnabled()) {
+            return false;
+        }
+        return sampleRate >= 1D || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
@@ -0,0 +1,95 @@
+package com.chengzhx.distributionLocker.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Description: Redis Cluster的hash slot计算，与Redis服务端的规则一致
+ * <p>
+ * key中包含非空的{...}时只对第一个{}内的内容计算slot，因此带有相同hash tag的key一定位于同一个slot，
+ * 可以在一次脚本调用中同时操作
+ *
+ * @author ChengZhenxing
+ */
+public final class HashSlotUtil {
+
+    /**
+     * Redis Cluster的slot总数
+     */
+    public static final int SLOT_COUNT = 16384;
+
+    /**
+     * CRC16（XMODEM，多项式0x1021）查找表
+     */
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int j = 0; j < 8; j++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private HashSlotUtil() {
+    }
+
+    /**
+     * 计算key所在的slot
+     *
+     * @param key key
+     * @return slot，范围[0, 16384)
+     */
+    public static int slot(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        int end = bytes.length;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '{') {
+                for (int j = i + 1; j < bytes.length; j++) {
+                    if (bytes[j] == '}') {
+                        // 空的{}不是hash tag，按整个key计算
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+        int crc = 0;
+        for (int i = start; i < end; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ bytes[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc & (SLOT_COUNT - 1);
+    }
+
+    /**
+     * 把key按slot分组，组按slot升序排列，组内的key去重并按字典序排列
+     * <p>
+     * 同一组的key可以放在一次脚本调用中；所有调用方按相同的顺序处理，不会交叉加锁
+     *
+     * @param keys key集合
+     * @return 按slot分好的组，keys为空时返回空列表
+     */
+    public static List<List<String>> groupBySlot(Collection<String> keys) {
+        Map<Integer, TreeSet<String>> slots = new TreeMap<>();
+        for (String key : keys) {
+            slots.computeIfAbsent(slot(key), slot -> new TreeSet<>()).add(key);
+        }
+        List<List<String>> groups = new ArrayList<>(slots.size());
+        for (TreeSet<String> group : slots.values()) {
+            groups.add(new ArrayList<>(group));
+        }
+        return groups;
+    }
+}
@@ -2,8 +2,16 @@ package com.chengzhx.distributionLocker.util;
 
 import org.redisson.api.*;
 import com.chengzhx.distributionLocker.service.DistributeLocker;
-
+import com.chengzhx.distributionLocker.service.LeaseExtension;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockOwner;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Description:
@@ -40,58 +48,111 @@ public class RedissonLockUtil {
         return locker.getCountDownLatch(lockKey);
     }
 
-    public static RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit) throws InterruptedException {
-        RLock lock = locker.getLock(lockKey);
-        Thread.sleep(1000);
-        return lock.tryLockAsync(waitTime, leaseTime, timeUnit);
+    public static RFuture<Boolean> tryLockAsync(String lockKey, int waitTime, int leaseTime, TimeUnit timeUnit) {
+        return locker.tryLockAsync(lockKey, waitTime, leaseTime, timeUnit);
+    }
+
+    public static RFuture<Boolean> tryLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, long ownerId) {
+        return locker.tryLockAsync(lockKey, waitTime, leaseTime, timeUnit, ownerId);
+    }
+
+    public static RFuture<Void> unLockAsync(String lockKey, long ownerId) {
+        return locker.unLockAsync(lockKey, ownerId);
+    }
+
+    public static RFuture<Boolean> isLockedAsync(String lockKey) {
+        return locker.isLockedAsync(lockKey);
+    }
+
+    public static <T> CompletionStage<T> withLockAsync(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit,
+                                                       Supplier<CompletionStage<T>> action) {
+        return locker.withLockAsync(lockKey, waitTime, leaseTime, timeUnit, action);
+    }
+
+    /**
+     * 生成一个异步持有者id
+     * <p>
+     * 异步调用可能在同一个事件循环线程上交错执行，不能用线程id区分持有者；
+     * 生成的id为负数，不会与任何线程id冲突
+     *
+     * @return 持有者id
+     * @see LockOwner#newOwnerId()
+     */
+    public static long newAsyncOwnerId() {
+        return LockOwner.newOwnerId();
     }
 
     public static void unLock(String lockKey) {
-        RLock lock = locker.getLock(lockKey);
-        lock.unlock();
+        locker.unLock(lockKey);
     }
 
     public static void unLock(RLock lock) {
-        lock.unlock();
+        locker.unLock(lock);
     }
 
     public static RLock lock(String lockKey, int timeout) {
-        RLock lock = locker.getLock(lockKey);
-        lock.lock(timeout, TimeUnit.SECONDS);
-        return lock;
+        return locker.lock(lockKey, timeout);
     }
 
     public static RLock lock(String lockKey, TimeUnit timeUnit, int timeout) {
-        RLock lock = locker.getLock(lockKey);
-        lock.lock(timeout, timeUnit);
-        return lock;
+        return locker.lock(lockKey, timeUnit, timeout);
     }
 
     public static boolean tryLock(String lockKey, int waitTime, int leaseTime) {
-        RLock lock = locker.getLock(lockKey);
-        try {
-            return lock.tryLock(waitTime, leaseTime, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            return false;
-        }
+        return locker.tryLock(lockKey, waitTime, leaseTime);
     }
 
     public static boolean tryLock(String lockKey, TimeUnit timeUnit, int waitTime, int leaseTime) {
-        RLock lock = locker.getLock(lockKey);
-        try {
-            return lock.tryLock(waitTime, leaseTime, timeUnit);
-        } catch (InterruptedException e) {
-            return false;
-        }
+        return locker.tryLock(lockKey, timeUnit, waitTime, leaseTime);
+    }
+
+    public static RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return locker.tryAcquire(lockKey, timeUnit, waitTime, leaseTime);
+    }
+
+    public static RLock tryAcquire(String lockKey, TimeUnit timeUnit, long waitTime, long leaseTime, WaitStrategy waitStrategy) {
+        return locker.tryAcquire(lockKey, timeUnit, waitTime, leaseTime, waitStrategy);
+    }
+
+    public static boolean release(RLock lock) {
+        return locker.release(lock);
+    }
+
+    public static boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime) {
+        return locker.tryLockAll(lockKeys, timeUnit, waitTime, leaseTime);
+    }
+
+    public static boolean tryLockAll(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                                     WaitStrategy waitStrategy) {
+        return locker.tryLockAll(lockKeys, timeUnit, waitTime, leaseTime, waitStrategy);
+    }
+
+    public static Map<String, Long> tryLockFenced(Collection<String> lockKeys, TimeUnit timeUnit, long waitTime, long leaseTime,
+                                                  WaitStrategy waitStrategy) {
+        return locker.tryLockFenced(lockKeys, timeUnit, waitTime, leaseTime, waitStrategy, Thread.currentThread().getId());
+    }
+
+    public static boolean unlockAll(Collection<String> lockKeys) {
+        return locker.unlockAll(lockKeys);
+    }
+
+    public static boolean renew(Collection<String> lockKeys, long ownerId, TimeUnit timeUnit, long leaseTime) {
+        return locker.renew(lockKeys, ownerId, timeUnit, leaseTime);
+    }
+
+    public static boolean[] renewAll(List<LeaseExtension> extensions) {
+        return locker.renewAll(extensions);
     }
 
     public static boolean isLocked(String lockKey) {
-        RLock lock = locker.getLock(lockKey);
-        return lock.isLocked();
+        return locker.isLocked(lockKey);
     }
 
     public static boolean isHeldByCurrentThread(String lockKey) {
-        RLock lock = locker.getLock(lockKey);
-        return lock.isHeldByCurrentThread();
+        return locker.isHeldByCurrentThread(lockKey);
+    }
+
+    public static boolean isHeldBy(String lockKey, long ownerId) {
+        return locker.isHeldBy(lockKey, ownerId);
     }
-}
\ No newline at end of file
+}
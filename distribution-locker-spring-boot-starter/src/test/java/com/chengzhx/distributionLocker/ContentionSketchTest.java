@@ -0,0 +1,47 @@
+package com.chengzhx.distributionLocker;
+
+import com.chengzhx.distributionLocker.monitor.ContentionSketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Description: 争用计数测试
+ *
+ * @author ChengZhenxing
+ */
+public class ContentionSketchTest {
+
+    @Test
+    public void testTopContended() {
+        ContentionSketch sketch = new ContentionSketch(TimeUnit.MINUTES.toNanos(1));
+        for (int i = 0; i < 1000; i++) {
+            sketch.record("DistributedLock:order:" + (i % 100), 1L);
+        }
+        for (int i = 0; i < 500; i++) {
+            sketch.record("DistributedLock:order:hot", 1L);
+        }
+        for (int i = 0; i < 200; i++) {
+            sketch.record("DistributedLock:order:warm", 1L);
+        }
+        List<ContentionSketch.Contention> top = sketch.top(2);
+        assertEquals(2, top.size());
+        assertEquals("DistributedLock:order:hot", top.get(0).getLockKey());
+        assertEquals("DistributedLock:order:warm", top.get(1).getLockKey());
+        // Count-Min只会高估
+        assertTrue(top.get(0).getCount() >= 500);
+    }
+
+    @Test
+    public void testWindowExpiry() throws InterruptedException {
+        ContentionSketch sketch = new ContentionSketch(TimeUnit.MILLISECONDS.toNanos(100));
+        sketch.record("DistributedLock:order:1", 10L);
+        assertTrue(sketch.estimate("DistributedLock:order:1") >= 10L);
+        Thread.sleep(150);
+        assertEquals(0L, sketch.estimate("DistributedLock:order:1"));
+        assertTrue(sketch.top(10).isEmpty());
+    }
+}
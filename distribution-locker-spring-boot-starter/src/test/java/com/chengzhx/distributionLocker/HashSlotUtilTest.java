@@ -0,0 +1,38 @@
+package com.chengzhx.distributionLocker;
+
+import com.chengzhx.distributionLocker.util.HashSlotUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Description: hash slot计算测试
+ *
+ * @author ChengZhenxing
+ */
+public class HashSlotUtilTest {
+
+    @Test
+    public void testSlotMatchesRedis() {
+        // 与CLUSTER KEYSLOT的结果一致
+        assertEquals(12739, HashSlotUtil.slot("123456789"));
+        assertEquals(12182, HashSlotUtil.slot("foo"));
+        assertEquals(5061, HashSlotUtil.slot("bar"));
+        assertEquals(HashSlotUtil.slot("user1000"), HashSlotUtil.slot("{user1000}.following"));
+        // 空的{}不是hash tag
+        assertNotEquals(HashSlotUtil.slot("foo{}{bar}"), HashSlotUtil.slot("bar"));
+    }
+
+    @Test
+    public void testGroupBySlot() {
+        List<List<String>> groups = HashSlotUtil.groupBySlot(Arrays.asList(
+                "DistributedLock:{t1}:order:2", "foo", "DistributedLock:{t1}:order:1", "foo"));
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList("DistributedLock:{t1}:order:1", "DistributedLock:{t1}:order:2"),
+                groups.get(HashSlotUtil.slot("t1") < HashSlotUtil.slot("foo") ? 0 : 1));
+        assertTrue(groups.contains(Arrays.asList("foo")));
+    }
+}
@@ -0,0 +1,210 @@
+package com.chengzhx.distributionLocker;
+
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.LockOwner;
+import com.chengzhx.distributionLocker.spi.LockRequest;
+import com.chengzhx.distributionLocker.spi.impl.InMemoryLockBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Description: 内存锁后端测试，不需要Redis
+ *
+ * @author ChengZhenxing
+ */
+public class InMemoryLockBackendTest {
+
+    private final InMemoryLockBackend backend = new InMemoryLockBackend();
+
+    @AfterEach
+    public void close() {
+        backend.close();
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+        LockHandle handle = backend.tryAcquire("order:1", TimeUnit.MILLISECONDS, 0, 1000);
+        assertNotNull(handle);
+        assertTrue(backend.isLocked("order:1"));
+        assertTrue(backend.release(handle));
+        assertFalse(backend.isLocked("order:1"));
+    }
+
+    @Test
+    public void testOtherThreadCannotAcquire() {
+        LockHandle handle = backend.tryAcquire("order:2", TimeUnit.MILLISECONDS, 0, 1000);
+        assertNotNull(handle);
+        LockHandle other = CompletableFuture.supplyAsync(() -> backend.tryAcquire("order:2", TimeUnit.MILLISECONDS, 50, 1000)).join();
+        assertNull(other);
+        assertTrue(backend.release(handle));
+    }
+
+    @Test
+    public void testReentrant() {
+        LockHandle first = backend.tryAcquire("order:3", TimeUnit.MILLISECONDS, 0, 1000);
+        LockHandle second = backend.tryAcquire("order:3", TimeUnit.MILLISECONDS, 0, 1000);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertTrue(backend.release(second));
+        assertTrue(backend.isLocked("order:3"));
+        assertTrue(backend.release(first));
+        assertFalse(backend.isLocked("order:3"));
+    }
+
+    @Test
+    public void testLeaseExpiry() throws InterruptedException {
+        LockHandle handle = backend.tryAcquire("order:4", TimeUnit.MILLISECONDS, 0, 50);
+        assertNotNull(handle);
+        // 等待者在持有者过期后获取成功
+        LockHandle other = CompletableFuture.supplyAsync(() -> backend.tryAcquire("order:4", TimeUnit.MILLISECONDS, 1000, 1000)).join();
+        assertNotNull(other);
+        assertFalse(backend.release(handle));
+    }
+
+    @Test
+    public void testReentryDoesNotShortenLease() throws InterruptedException {
+        LockHandle outer = backend.tryAcquire("order:9", TimeUnit.MILLISECONDS, 0, 1000);
+        LockHandle inner = backend.tryAcquire("order:9", TimeUnit.MILLISECONDS, 0, 20);
+        assertNotNull(outer);
+        assertNotNull(inner);
+        // 重入时更短的leaseTime不能截断外层的持有时间
+        Thread.sleep(60);
+        assertTrue(backend.isLocked("order:9"));
+        assertTrue(backend.release(inner));
+        assertTrue(backend.release(outer));
+    }
+
+    @Test
+    public void testReentryKeepsFiniteLease() throws InterruptedException {
+        LockHandle outer = backend.tryAcquire("order:10", TimeUnit.MILLISECONDS, 0, 50);
+        // 重入时不指定leaseTime，保持外层的过期时间而不是改为永不过期
+        LockHandle inner = backend.tryAcquire("order:10", TimeUnit.MILLISECONDS, 0, -1);
+        assertNotNull(outer);
+        assertNotNull(inner);
+        Thread.sleep(100);
+        assertFalse(backend.isLocked("order:10"));
+    }
+
+    @Test
+    public void testJoiningReaderDoesNotShortenLease() throws InterruptedException {
+        LockRequest longRead = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(1000).lockMode(LockMode.READ).build();
+        LockRequest shortRead = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(20).lockMode(LockMode.READ).build();
+        LockRequest write = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(1000).lockMode(LockMode.WRITE).build();
+        LockHandle first = backend.tryAcquire("catalog:2", longRead);
+        LockHandle second = CompletableFuture.supplyAsync(() -> backend.tryAcquire("catalog:2", shortRead)).join();
+        assertNotNull(first);
+        assertNotNull(second);
+        Thread.sleep(60);
+        // 第二个读者已过期，第一个读者仍然持有
+        assertNull(CompletableFuture.supplyAsync(() -> backend.tryAcquire("catalog:2", write)).join());
+        assertFalse(backend.release(second));
+        assertTrue(backend.release(first));
+        assertFalse(backend.isLocked("catalog:2"));
+    }
+
+    @Test
+    public void testFailFastDoesNotWait() {
+        LockHandle handle = backend.tryAcquire("order:5", TimeUnit.MILLISECONDS, 0, 1000);
+        assertNotNull(handle);
+        LockRequest request = LockRequest.builder()
+                .timeUnit(TimeUnit.SECONDS)
+                .waitTime(10)
+                .leaseTime(30)
+                .waitStrategy(WaitStrategy.FAIL_FAST)
+                .build();
+        long start = System.nanoTime();
+        LockHandle other = CompletableFuture.supplyAsync(() -> backend.tryAcquire("order:5", request)).join();
+        assertNull(other);
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 1);
+        assertTrue(backend.release(handle));
+    }
+
+    @Test
+    public void testFencingTokensIncrease() {
+        LockRequest request = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(1000).fencing(true).build();
+        LockHandle first = backend.tryAcquire("order:6", request);
+        assertNotNull(first);
+        assertTrue(backend.release(first));
+        LockHandle second = CompletableFuture.supplyAsync(() -> backend.tryAcquireAll(Arrays.asList("order:7", "order:6"), request)).join();
+        assertNotNull(second);
+        assertTrue(second.getFencingToken("order:6") > first.getFencingToken());
+        assertEquals(1L, second.getFencingToken("order:7"));
+        // 未要求生成token时为0
+        LockHandle plain = CompletableFuture.supplyAsync(() -> backend.tryAcquire("order:8", TimeUnit.MILLISECONDS, 0, 1000)).join();
+        assertEquals(0L, plain.getFencingToken());
+    }
+
+    @Test
+    public void testFencingTokensIncreaseAfterIdleCounterExpires() throws InterruptedException {
+        InMemoryLockBackend shortIdle = new InMemoryLockBackend(4, 50);
+        try {
+            LockRequest request = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(1000).fencing(true).build();
+            LockHandle first = shortIdle.tryAcquire("order:20", request);
+            assertEquals(1L, first.getFencingToken());
+            assertTrue(shortIdle.release(first));
+            // 计数器空闲过期后重新创建，起点为单调时钟，token仍然比之前大
+            Thread.sleep(200);
+            LockHandle second = shortIdle.tryAcquire("order:20", request);
+            assertTrue(second.getFencingToken() > TimeUnit.MILLISECONDS.toNanos(50));
+            assertTrue(shortIdle.release(second));
+            LockHandle third = shortIdle.tryAcquire("order:20", request);
+            assertEquals(second.getFencingToken() + 1, third.getFencingToken());
+            assertTrue(shortIdle.release(third));
+        } finally {
+            shortIdle.close();
+        }
+    }
+
+    @Test
+    public void testReadersShareAndExcludeWriter() {
+        LockRequest read = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(1000).lockMode(LockMode.READ).build();
+        LockRequest write = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).waitTime(20).leaseTime(1000).lockMode(LockMode.WRITE).build();
+        LockHandle first = backend.tryAcquire("catalog:1", read);
+        LockHandle second = CompletableFuture.supplyAsync(() -> backend.tryAcquire("catalog:1", read)).join();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(CompletableFuture.supplyAsync(() -> backend.tryAcquire("catalog:1", write)).join());
+        assertTrue(backend.release(second));
+        assertTrue(backend.release(first));
+        LockHandle writer = CompletableFuture.supplyAsync(() -> backend.tryAcquire("catalog:1", write)).join();
+        assertNotNull(writer);
+        assertNull(backend.tryAcquire("catalog:1", read));
+    }
+
+    @Test
+    public void testOwnerReleasesOnAnotherThread() {
+        LockRequest request = LockRequest.of(TimeUnit.MILLISECONDS, 0, 1000).withOwner(LockOwner.newOwner());
+        LockHandle handle = backend.tryAcquireAsync("task:1", request).join();
+        assertNotNull(handle);
+        assertEquals(request.getOwnerId(), handle.getOwnerId());
+        // 同一个持有者在其他线程上重入，其他持有者获取失败
+        LockHandle reentered = CompletableFuture.supplyAsync(() -> backend.tryAcquire("task:1", request)).join();
+        assertNotNull(reentered);
+        assertNull(backend.tryAcquire("task:1", TimeUnit.MILLISECONDS, 0, 1000));
+        assertTrue(CompletableFuture.supplyAsync(() -> backend.release(reentered)).join());
+        assertTrue(CompletableFuture.supplyAsync(() -> backend.release(handle)).join());
+        assertFalse(backend.isLocked("task:1"));
+    }
+
+    @Test
+    public void testAcquireAllIsAllOrNothing() {
+        LockHandle blocker = CompletableFuture.supplyAsync(() -> backend.tryAcquire("sku:2", TimeUnit.MILLISECONDS, 0, 1000)).join();
+        assertNotNull(blocker);
+        assertNull(backend.tryAcquireAll(Arrays.asList("sku:3", "sku:1", "sku:2"), TimeUnit.MILLISECONDS, 20, 1000));
+        assertFalse(backend.isLocked("sku:1"));
+        assertFalse(backend.isLocked("sku:3"));
+
+        LockHandle all = backend.tryAcquireAll(Arrays.asList("sku:3", "sku:1"), TimeUnit.MILLISECONDS, 0, 1000);
+        assertNotNull(all);
+        assertEquals(Arrays.asList("sku:1", "sku:3"), all.getLockKeys());
+        assertTrue(backend.release(all));
+    }
+}
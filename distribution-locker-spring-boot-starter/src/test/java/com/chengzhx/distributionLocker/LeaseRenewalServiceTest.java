@@ -0,0 +1,93 @@
+package com.chengzhx.distributionLocker;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.renewal.LeaseRenewalService;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.impl.InMemoryLockBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Description: 自动续期测试，使用内存锁后端
+ *
+ * @author ChengZhenxing
+ */
+public class LeaseRenewalServiceTest {
+
+    private final InMemoryLockBackend backend = new InMemoryLockBackend();
+
+    private final LeaseRenewalService renewalService = new LeaseRenewalService(backend, 20);
+
+    @AfterEach
+    public void close() {
+        renewalService.close();
+        backend.close();
+    }
+
+    @Test
+    public void testRenewKeepsLockBeyondLease() throws InterruptedException {
+        LockHandle handle = backend.tryAcquire("order:1", TimeUnit.MILLISECONDS, 0, 100);
+        assertNotNull(handle);
+        LeaseRenewalService.Renewal renewal = renewalService.register(handle, TimeUnit.MILLISECONDS.toNanos(100), false);
+        Thread.sleep(400);
+        assertTrue(backend.isLocked("order:1"));
+        assertFalse(renewal.isLost());
+        renewal.cancel();
+        assertTrue(backend.release(handle));
+        assertEquals(0, renewalService.getActiveCount());
+    }
+
+    @Test
+    public void testRenewalsAreBatched() throws InterruptedException {
+        LeaseRenewalService batchingService = new LeaseRenewalService(backend, 20, 100, 0D);
+        try {
+            List<LockHandle> handles = new ArrayList<>();
+            List<LeaseRenewalService.Renewal> renewals = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                LockHandle handle = backend.tryAcquire("sku:" + i, TimeUnit.MILLISECONDS, 0, 150);
+                handles.add(handle);
+                renewals.add(batchingService.register(handle, TimeUnit.MILLISECONDS.toNanos(150), false));
+            }
+            Thread.sleep(400);
+            for (int i = 0; i < 10; i++) {
+                assertFalse(renewals.get(i).isLost());
+                renewals.get(i).cancel();
+                assertTrue(backend.release(handles.get(i)));
+            }
+            // 同一轮到期的锁在一个批次中续期
+            assertTrue(batchingService.getRenewedCount() >= 10 * batchingService.getBatchCount());
+        } finally {
+            batchingService.close();
+        }
+    }
+
+    @Test
+    public void testRejectsLeaseShorterThanThreeIntervals() {
+        LockHandle handle = backend.tryAcquire("order:3", TimeUnit.MILLISECONDS, 0, 1000);
+        // 续期间隔为20ms，leaseTime至少60ms
+        assertThrows(DistributionLockException.class,
+                () -> renewalService.register(handle, TimeUnit.MILLISECONDS.toNanos(50), false));
+        assertEquals(0, renewalService.getActiveCount());
+        assertTrue(backend.release(handle));
+    }
+
+    @Test
+    public void testLostLockInterruptsOwner() {
+        LockHandle handle = backend.tryAcquire("order:2", TimeUnit.MILLISECONDS, 0, 1000);
+        assertNotNull(handle);
+        LeaseRenewalService.Renewal renewal = renewalService.register(handle, TimeUnit.MILLISECONDS.toNanos(1000), true);
+        // 模拟锁被提前释放，下一次续期失败
+        assertTrue(backend.release(handle));
+        assertThrows(InterruptedException.class, () -> Thread.sleep(1000));
+        assertTrue(renewal.isLost());
+        assertThrows(DistributionLockException.class, LeaseRenewalService::checkCurrentHeld);
+        renewal.cancel();
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
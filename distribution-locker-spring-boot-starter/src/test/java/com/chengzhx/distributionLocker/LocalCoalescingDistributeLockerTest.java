@@ -0,0 +1,141 @@
+package com.chengzhx.distributionLocker;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.service.DistributeLocker;
+import com.chengzhx.distributionLocker.service.impl.LocalCoalescingDistributeLocker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.client.RedisException;
+import org.redisson.misc.CompletableFutureWrapper;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Description: 本地合并与交接测试，Redis锁由mock代替
+ *
+ * @author ChengZhenxing
+ */
+public class LocalCoalescingDistributeLockerTest {
+
+    private static final String KEY = "order:1";
+
+    private final DistributeLocker delegate = mock(DistributeLocker.class);
+
+    private final RLock remoteLock = mock(RLock.class);
+
+    @BeforeEach
+    public void setUp() {
+        when(delegate.getLock(KEY)).thenReturn(remoteLock);
+        when(remoteLock.getName()).thenReturn(KEY);
+        when(remoteLock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenAnswer(invocation -> new CompletableFutureWrapper<>(true));
+        when(remoteLock.unlockAsync(anyLong())).thenAnswer(invocation -> new CompletableFutureWrapper<>((Void) null));
+        when(delegate.renew(anyCollection(), anyLong(), any(TimeUnit.class), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    public void testHandoffWithFixedLease() throws Exception {
+        LocalCoalescingDistributeLocker locker = new LocalCoalescingDistributeLocker(delegate, true, true, 16, 10000);
+        RLock lock = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 1000, 30000);
+        assertNotNull(lock);
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            RLock inherited = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 5000, 30000);
+            return inherited != null && locker.release(inherited);
+        });
+        awaitWaiters(locker, 1);
+        // 确保交接时剩余的持有时间已经小于leaseTime
+        Thread.sleep(5);
+        locker.release(lock);
+
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, locker.getHandoffCount());
+        assertEquals(1, locker.getRemoteAcquireCount());
+        assertEquals(1, locker.getRemoteReleaseCount());
+        // 接手时通过续期把过期时间延长到完整的leaseTime
+        verify(delegate).renew(anyCollection(), anyLong(), eq(TimeUnit.MILLISECONDS), eq(30000L));
+        verify(remoteLock, times(1)).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+        verify(remoteLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    public void testHandoffFailsWhenLeaseLost() throws Exception {
+        when(delegate.renew(anyCollection(), anyLong(), any(TimeUnit.class), anyLong())).thenReturn(false);
+        LocalCoalescingDistributeLocker locker = new LocalCoalescingDistributeLocker(delegate, true, true, 16, 10000);
+        RLock lock = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 1000, 30000);
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            RLock acquired = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 5000, 30000);
+            return acquired != null && locker.release(acquired);
+        });
+        awaitWaiters(locker, 1);
+        Thread.sleep(5);
+        locker.release(lock);
+
+        // 续期失败说明Redis锁已过期，重新获取
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(0, locker.getHandoffCount());
+        assertEquals(2, locker.getRemoteAcquireCount());
+    }
+
+    @Test
+    public void testWaiterTimeoutKeepsRemoteLock() throws Exception {
+        LocalCoalescingDistributeLocker locker = new LocalCoalescingDistributeLocker(delegate, true, true, 16, 10000);
+        RLock lock = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 1000, 30000);
+
+        // 没有发生交接时，排队超时的线程不能释放持有者的Redis锁
+        assertNull(CompletableFuture.supplyAsync(() -> locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 20, 30000))
+                .get(5, TimeUnit.SECONDS));
+        verify(remoteLock, never()).unlockAsync(anyLong());
+
+        assertTrue(locker.release(lock));
+        verify(remoteLock, times(1)).unlockAsync(anyLong());
+        assertEquals(0, locker.getHandoffCount());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        LocalCoalescingDistributeLocker locker = new LocalCoalescingDistributeLocker(delegate, true);
+        RLock lock = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 1000, 30000);
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            RLock acquired = locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 5000, 30000);
+            return acquired != null && locker.release(acquired);
+        });
+        awaitWaiters(locker, 1);
+        // 同一进程的其他线程在本地排队，不会访问Redis
+        verify(remoteLock, times(1)).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+
+        locker.release(lock);
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(2, locker.getRemoteAcquireCount());
+        assertEquals(0, locker.getLocalWaiters(KEY));
+    }
+
+    @Test
+    public void testRedisErrorIsNotLostRace() {
+        when(remoteLock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenAnswer(invocation -> new CompletableFutureWrapper<Boolean>(new RedisException("connection reset")));
+        LocalCoalescingDistributeLocker locker = new LocalCoalescingDistributeLocker(delegate, true);
+
+        assertThrows(DistributionLockException.class, () -> locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 1000, 30000));
+        // 本地锁已归还，其他线程不会被卡住
+        when(remoteLock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenAnswer(invocation -> new CompletableFutureWrapper<>(true));
+        assertNotNull(CompletableFuture.supplyAsync(() -> locker.tryAcquire(KEY, TimeUnit.MILLISECONDS, 0, 30000)).join());
+    }
+
+    private static void awaitWaiters(LocalCoalescingDistributeLocker locker, int waiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (locker.getLocalWaiters(KEY) < waiters) {
+            assertTrue(System.nanoTime() < deadline, "waiter not queued");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.chengzhx.distributionLocker;
+
+import com.chengzhx.distributionLocker.service.DistributeLocker;
+import com.chengzhx.distributionLocker.service.LockMode;
+import com.chengzhx.distributionLocker.service.WaitStrategy;
+import com.chengzhx.distributionLocker.spi.LockHandle;
+import com.chengzhx.distributionLocker.spi.LockRequest;
+import com.chengzhx.distributionLocker.spi.impl.RedissonLockBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RReadWriteLock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Description: Redisson锁后端共享读锁测试，DistributeLocker为mock，不需要Redis
+ *
+ * @author ChengZhenxing
+ */
+public class RedissonLockBackendTest {
+
+    private final DistributeLocker locker = mock(DistributeLocker.class);
+
+    private final RLock readLock = mock(RLock.class);
+
+    private final RLock writeLock = mock(RLock.class);
+
+    private final RedissonLockBackend backend = new RedissonLockBackend(locker);
+
+    private final LockRequest read = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(100)
+            .lockMode(LockMode.READ).build();
+
+    @BeforeEach
+    public void setUp() {
+        RReadWriteLock readWriteLock = mock(RReadWriteLock.class);
+        when(readWriteLock.readLock()).thenReturn(readLock);
+        when(readWriteLock.writeLock()).thenReturn(writeLock);
+        when(locker.getReadWriteLock(anyString())).thenReturn(readWriteLock);
+        when(locker.tryLock(any(RLock.class), anyLong(), any(TimeUnit.class), anyLong(), anyLong(), any(WaitStrategy.class)))
+                .thenReturn(true);
+        when(locker.unlock(any(RLock.class), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    public void testReadersShareOneRedisReadLockWithBoundedLease() {
+        LockHandle first = backend.tryAcquire("doc:1", read);
+        LockHandle second = backend.tryAcquire("doc:1", read);
+        assertNotNull(first);
+        assertNotNull(second);
+        // 共享读锁的过期时间为两倍leaseTime，不使用看门狗
+        verify(locker, times(1)).tryLock(eq(readLock), anyLong(), eq(TimeUnit.NANOSECONDS), anyLong(),
+                eq(TimeUnit.MILLISECONDS.toNanos(200)), any(WaitStrategy.class));
+        assertTrue(backend.release(first));
+        verify(locker, never()).unlock(any(RLock.class), anyLong());
+        assertTrue(backend.release(second));
+        verify(locker, times(1)).unlock(eq(readLock), anyLong());
+    }
+
+    @Test
+    public void testShareOlderThanLeaseTimeStopsAdmittingReaders() throws InterruptedException {
+        LockHandle first = backend.tryAcquire("doc:2", read);
+        assertNotNull(first);
+        Thread.sleep(150);
+        // 超过加入窗口后不再加入，等待不到已有读者释放时获取失败
+        assertNull(backend.tryAcquire("doc:2", read));
+        LockRequest waiting = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).waitTime(1000).leaseTime(100)
+                .lockMode(LockMode.READ).build();
+        CompletableFuture<LockHandle> next = CompletableFuture.supplyAsync(() -> backend.tryAcquire("doc:2", waiting));
+        Thread.sleep(50);
+        assertFalse(next.isDone());
+        // 已有读者释放后重新获取Redis读锁
+        assertTrue(backend.release(first));
+        LockHandle second = next.join();
+        assertNotNull(second);
+        verify(locker, times(2)).tryLock(eq(readLock), anyLong(), any(TimeUnit.class), anyLong(), anyLong(), any(WaitStrategy.class));
+        assertTrue(backend.release(second));
+    }
+
+    @Test
+    public void testWaitingWriterStopsAdmittingReaders() {
+        LockHandle reader = backend.tryAcquire("doc:3", read);
+        assertNotNull(reader);
+        LockRequest write = LockRequest.builder().timeUnit(TimeUnit.MILLISECONDS).leaseTime(100).lockMode(LockMode.WRITE).build();
+        when(locker.tryLock(eq(writeLock), anyLong(), any(TimeUnit.class), anyLong(), anyLong(), any(WaitStrategy.class)))
+                .thenReturn(false);
+        assertNull(backend.tryAcquire("doc:3", write));
+        assertNull(backend.tryAcquire("doc:3", read));
+        assertTrue(backend.release(reader));
+        // 已有读者释放后新的读者重新获取
+        LockHandle next = backend.tryAcquire("doc:3", read);
+        assertNotNull(next);
+        assertTrue(backend.release(next));
+    }
+
+    @Test
+    public void testRenewSharedReadLockUsesShareOwner() {
+        LockHandle first = backend.tryAcquire("doc:4", read);
+        LockHandle second = backend.tryAcquire("doc:4", read);
+        when(locker.renew(anyCollection(), anyLong(), any(TimeUnit.class), anyLong())).thenReturn(true);
+        assertTrue(backend.renew(first, TimeUnit.MILLISECONDS, 100));
+        // 续期的是共享读锁的持有者，而不是读者自己的持有者
+        verify(locker).renew(anyCollection(), longThat(ownerId -> ownerId != first.getOwnerId()), eq(TimeUnit.MILLISECONDS), eq(100L));
+        assertTrue(backend.release(first));
+        assertTrue(backend.release(second));
+        assertFalse(backend.renew(second, TimeUnit.MILLISECONDS, 100));
+    }
+}
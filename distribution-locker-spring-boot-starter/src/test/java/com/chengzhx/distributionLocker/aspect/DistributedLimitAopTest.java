@@ -0,0 +1,202 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import com.chengzhx.distributionLocker.exception.DistributionLockException;
+import com.chengzhx.distributionLocker.service.DistributeLimiter;
+import com.chengzhx.distributionLocker.service.impl.RedissonDistributeLimiter;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Description: 限流切面测试，Redis脚本由mock代替，验证本地预取令牌和并发许可的释放
+ *
+ * @author ChengZhenxing
+ */
+public class DistributedLimitAopTest {
+
+    private static final String SEARCH_KEY_PREFIX = "DistributedRateLimit:search:";
+
+    private final RScript script = mock(RScript.class);
+
+    @SuppressWarnings("unchecked")
+    private final RScoredSortedSet<Object> permits = mock(RScoredSortedSet.class);
+
+    /**
+     * 每次令牌桶脚本调用的key和最多获取的令牌数
+     */
+    private final List<String[]> tokenCalls = new CopyOnWriteArrayList<>();
+
+    /**
+     * (key, 最多获取的令牌数) -> 获取到的令牌数
+     */
+    private volatile BiFunction<String, Long, Long> tokens = (key, maxTokens) -> maxTokens;
+
+    private DistributedLimitAop aop;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getScript(StringCodec.INSTANCE)).thenReturn(script);
+        when(redissonClient.getId()).thenReturn("node-1");
+        when(redissonClient.getScoredSortedSet(anyString(), any(Codec.class))).thenReturn(permits);
+        when(script.eval(any(RScript.Mode.class), any(String.class), any(RScript.ReturnType.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    String lua = invocation.getArgument(1);
+                    if (lua.contains("zcard")) {
+                        // 并发许可获取成功
+                        return null;
+                    }
+                    String key = (String) ((List<Object>) invocation.getArgument(3)).get(0);
+                    String maxTokens = invocation.getArgument(8);
+                    tokenCalls.add(new String[]{key, maxTokens});
+                    return Arrays.asList(tokens.apply(key, Long.parseLong(maxTokens)), 0L);
+                });
+        DistributeLimiter limiter = new RedissonDistributeLimiter(redissonClient, 4, 30000, 60000);
+        ObjectProvider<DistributeLimiter> limiterProvider = mock(ObjectProvider.class);
+        when(limiterProvider.getIfAvailable()).thenReturn(limiter);
+        aop = new DistributedLimitAop(limiterProvider);
+    }
+
+    @DistributedRateLimit(name = "search", key = "#p0", rate = 100, period = 50, timeUnit = TimeUnit.MILLISECONDS, localBatch = 10)
+    public String search(String keyword) {
+        return keyword;
+    }
+
+    @DistributedConcurrencyLimit(name = "export", permits = 2)
+    public void export() {
+        throw new IllegalStateException("export failed");
+    }
+
+    @Test
+    public void testOnlyOneThreadFetchesBatch() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        tokens = (key, maxTokens) -> {
+            if (maxTokens > 1) {
+                fetching.countDown();
+                await(resume);
+            }
+            return maxTokens;
+        };
+        CompletableFuture<Object> fetcher = CompletableFuture.supplyAsync(() -> rateLimit("a"));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        // 预取期间其他线程只向Redis获取一个令牌
+        for (int i = 0; i < 3; i++) {
+            assertEquals("a", rateLimit("a"));
+        }
+        resume.countDown();
+        assertEquals("a", fetcher.get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("10", "1", "1", "1"), maxTokensOf(SEARCH_KEY_PREFIX + "a"));
+        // 预取的令牌在本地使用
+        assertEquals("a", rateLimit("a"));
+        assertEquals(4, maxTokensOf(SEARCH_KEY_PREFIX + "a").size());
+    }
+
+    @Test
+    public void testLocalBudgetExpiresAfterOnePeriod() throws InterruptedException {
+        assertEquals("b", rateLimit("b"));
+        assertEquals("b", rateLimit("b"));
+        assertEquals(1, maxTokensOf(SEARCH_KEY_PREFIX + "b").size());
+        // 超过一个周期后剩余的本地令牌作废，重新向Redis预取
+        Thread.sleep(100);
+        assertEquals("b", rateLimit("b"));
+        assertEquals(Arrays.asList("10", "10"), maxTokensOf(SEARCH_KEY_PREFIX + "b"));
+    }
+
+    @Test
+    public void testSweepNeverRetiresFetchingBudget() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        String busyKey = SEARCH_KEY_PREFIX + "busy";
+        tokens = (key, maxTokens) -> {
+            if (key.equals(busyKey)) {
+                fetching.countDown();
+                await(resume);
+                return maxTokens;
+            }
+            // 其他key的令牌立即用完，清理时都是空闲的
+            return 1L;
+        };
+        CompletableFuture<Object> fetcher = CompletableFuture.supplyAsync(() -> rateLimit("busy"));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        // 缓存达到上限后清理空闲的key，新的key仍然可以预取
+        for (int i = 0; i < 4096; i++) {
+            rateLimit("k" + i);
+        }
+        assertEquals(Arrays.asList("10"), maxTokensOf(SEARCH_KEY_PREFIX + "k4095"));
+        resume.countDown();
+        assertEquals("busy", fetcher.get(5, TimeUnit.SECONDS));
+        // 预取中的key没有被移除，预取到的令牌仍然可以使用
+        assertEquals("busy", rateLimit("busy"));
+        assertEquals(1, maxTokensOf(busyKey).size());
+    }
+
+    @Test
+    public void testRateLimitExceeded() {
+        tokens = (key, maxTokens) -> 0L;
+        assertThrows(DistributionLockException.class, () -> aop.rateLimit(joinPoint("search", "c")));
+    }
+
+    @Test
+    public void testPermitReleasedWhenMethodThrows() throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint("export");
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("export failed"));
+        assertThrows(IllegalStateException.class, () -> aop.concurrencyLimit(joinPoint));
+        verify(permits).remove("node-1:1");
+    }
+
+    private Object rateLimit(String keyword) {
+        try {
+            return aop.rateLimit(joinPoint("search", keyword));
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ProceedingJoinPoint joinPoint(String methodName, Object... args) throws Throwable {
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        MethodSignature signature = mock(MethodSignature.class);
+        Class<?>[] parameterTypes = new Class<?>[args.length];
+        Arrays.fill(parameterTypes, String.class);
+        when(signature.getMethod()).thenReturn(getClass().getMethod(methodName, parameterTypes));
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(this);
+        when(joinPoint.getArgs()).thenReturn(args);
+        when(joinPoint.proceed()).thenReturn(args.length > 0 ? args[0] : null);
+        return joinPoint;
+    }
+
+    private List<String> maxTokensOf(String key) {
+        return tokenCalls.stream().filter(call -> call[0].equals(key)).map(call -> call[1]).collect(Collectors.toList());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
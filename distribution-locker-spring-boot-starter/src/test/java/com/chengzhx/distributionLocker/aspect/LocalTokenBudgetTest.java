@@ -0,0 +1,52 @@
+package com.chengzhx.distributionLocker.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Description: 本节点预取令牌的测试
+ *
+ * @author ChengZhenxing
+ */
+public class LocalTokenBudgetTest {
+
+    private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final LocalTokenBudget budget = new LocalTokenBudget();
+
+    @Test
+    public void testTokensExpireAfterOnePeriod() {
+        long now = System.nanoTime();
+        assertFalse(budget.tryTake(now));
+        assertTrue(budget.startFetch());
+        budget.finishFetch(2, now + PERIOD);
+        assertTrue(budget.tryTake(now + 1));
+        // 过期后剩余的令牌作废
+        assertFalse(budget.tryTake(now + PERIOD));
+        assertFalse(budget.tryTake(now + 1));
+    }
+
+    @Test
+    public void testOnlyOneFetchAtATime() {
+        assertTrue(budget.startFetch());
+        assertFalse(budget.startFetch());
+        budget.finishFetch(0, System.nanoTime() + PERIOD);
+        assertTrue(budget.startFetch());
+    }
+
+    @Test
+    public void testFetchingBudgetIsNeverRetired() {
+        long now = System.nanoTime();
+        assertTrue(budget.startFetch());
+        assertFalse(budget.retireIfIdle(now));
+        budget.finishFetch(1, now + PERIOD);
+        // 还有未过期的令牌
+        assertFalse(budget.retireIfIdle(now));
+        assertTrue(budget.retireIfIdle(now + PERIOD));
+        // 移除后不再预取
+        assertFalse(budget.startFetch());
+    }
+}
@@ -0,0 +1,45 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Description: 锁对象缓存测试
+ *
+ * @author ChengZhenxing
+ */
+public class LockObjectCacheTest {
+
+    @Test
+    public void testHitReturnsSameObject() {
+        AtomicInteger created = new AtomicInteger();
+        LockObjectCache<Object> cache = new LockObjectCache<>(4, name -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+        assertSame(cache.get("order:1"), cache.get("order:1"));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testHotKeySurvivesEviction() {
+        LockObjectCache<Object> cache = new LockObjectCache<>(8, name -> new Object());
+        Object hot = cache.get("hot");
+        for (int i = 0; i < 1000; i++) {
+            // 每次插入冷key前访问一次热点key
+            assertSame(hot, cache.get("hot"));
+            cache.get("cold:" + i);
+            assertTrue(cache.size() <= 8);
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        LockObjectCache<Object> cache = new LockObjectCache<>(0, name -> new Object());
+        assertNotSame(cache.get("order:1"), cache.get("order:1"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,148 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Description: 按块租用许可的信号量测试，Redis脚本由mock代替，只验证本地的计数和与Redis的交互
+ *
+ * @author ChengZhenxing
+ */
+public class RedissonChunkedSemaphoreTest {
+
+    private final RScript script = mock(RScript.class);
+
+    /**
+     * 每次脚本调用的ARGV
+     */
+    private final List<Object[]> calls = new ArrayList<>();
+
+    private Function<Object[], Long> lease;
+
+    private Function<Object[], Long> renew;
+
+    private RedissonChunkedSemaphore semaphore;
+
+    @BeforeEach
+    public void setUp() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getScript(StringCodec.INSTANCE)).thenReturn(script);
+        when(redissonClient.getId()).thenReturn("node-1");
+        lease = args -> Long.parseLong((String) args[1]);
+        renew = args -> -1L;
+        when(script.eval(any(RScript.Mode.class), any(String.class), any(RScript.ReturnType.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    String lua = invocation.getArgument(1);
+                    Object[] args = new Object[invocation.getArguments().length - 4];
+                    System.arraycopy(invocation.getArguments(), 4, args, 0, args.length);
+                    calls.add(args);
+                    if (lua.contains("return granted;")) {
+                        return lease.apply(args);
+                    }
+                    if (lua.contains("return registered;")) {
+                        return renew.apply(args);
+                    }
+                    return 0L;
+                });
+        semaphore = new RedissonChunkedSemaphore(redissonClient, "report", 10, 4, 30000, 60000);
+    }
+
+    @Test
+    public void testLeaseChunkAndReuseLocally() {
+        assertTrue(semaphore.tryAcquire(0, TimeUnit.MILLISECONDS));
+        assertEquals(4, semaphore.getLeasedPermits());
+        assertEquals(3, semaphore.getLocalAvailablePermits());
+        semaphore.release();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(semaphore.tryAcquire(0, TimeUnit.MILLISECONDS));
+        }
+        // 本地的许可足够时不访问Redis
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void testGlobalPermitsExhausted() {
+        lease = args -> 0L;
+        assertFalse(semaphore.tryAcquire(20, TimeUnit.MILLISECONDS));
+        assertEquals(0, semaphore.getLeasedPermits());
+    }
+
+    @Test
+    public void testReapedLeaseKeepsGlobalLimit() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(semaphore.tryAcquire(0, TimeUnit.MILLISECONDS));
+        }
+        // 租约已被清理，其他节点占用了大部分许可，只能重新登记1个
+        renew = args -> 1L;
+        semaphore.maintain();
+        Object[] renewArgs = calls.get(calls.size() - 1);
+        assertEquals("3", renewArgs[1]);
+        assertEquals("10", renewArgs[3]);
+        assertEquals(1, semaphore.getLeasedPermits());
+        assertEquals(0, semaphore.getLocalAvailablePermits());
+
+        // 超出登记的2个许可先偿还，偿还完之前不向Redis租用
+        lease = args -> {
+            throw new AssertionError("lease while in debt");
+        };
+        semaphore.release();
+        semaphore.release();
+        assertEquals(0, semaphore.getLocalAvailablePermits());
+        semaphore.release();
+        assertEquals(1, semaphore.getLocalAvailablePermits());
+        assertTrue(semaphore.tryAcquire(0, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testReapedLeaseReturnsExcess() {
+        assertTrue(semaphore.tryAcquire(0, TimeUnit.MILLISECONDS));
+        renew = args -> 3L;
+        semaphore.maintain();
+        // 只有1个许可正在使用，多登记的2个归还Redis
+        Object[] returnArgs = calls.get(calls.size() - 1);
+        assertEquals("2", returnArgs[1]);
+        assertEquals(1, semaphore.getLeasedPermits());
+    }
+
+    @Test
+    public void testMaintainDoesNotBlockLocalPermits() throws Exception {
+        assertTrue(semaphore.tryAcquire(0, TimeUnit.MILLISECONDS));
+        CountDownLatch renewing = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        renew = args -> {
+            renewing.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return -1L;
+        };
+        CompletableFuture<Void> maintain = CompletableFuture.runAsync(semaphore::maintain);
+        assertTrue(renewing.await(5, TimeUnit.SECONDS));
+        // 续期期间其他线程仍然可以获取和归还本地许可
+        CompletableFuture<Boolean> acquired = CompletableFuture.supplyAsync(() -> {
+            boolean result = semaphore.tryAcquire(1000, TimeUnit.MILLISECONDS);
+            semaphore.release();
+            return result;
+        });
+        assertTrue(acquired.get(5, TimeUnit.SECONDS));
+        resume.countDown();
+        maintain.get(5, TimeUnit.SECONDS);
+        assertEquals(4, semaphore.getLeasedPermits());
+    }
+}
@@ -0,0 +1,102 @@
+package com.chengzhx.distributionLocker.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Description: 分布式限流测试，Redis脚本由mock代替，验证参数传递和等待重试
+ *
+ * @author ChengZhenxing
+ */
+public class RedissonDistributeLimiterTest {
+
+    private final RScript script = mock(RScript.class);
+
+    private final RedissonClient redissonClient = mock(RedissonClient.class);
+
+    /**
+     * 每次脚本调用的ARGV
+     */
+    private final List<Object[]> calls = new ArrayList<>();
+
+    private Function<Object[], List<Long>> tokenBucket;
+
+    private Function<Object[], Long> acquirePermit;
+
+    private RedissonDistributeLimiter limiter;
+
+    @BeforeEach
+    public void setUp() {
+        when(redissonClient.getScript(StringCodec.INSTANCE)).thenReturn(script);
+        when(redissonClient.getId()).thenReturn("node-1");
+        tokenBucket = args -> Arrays.asList(Long.parseLong((String) args[4]), 0L);
+        acquirePermit = args -> null;
+        when(script.eval(any(RScript.Mode.class), any(String.class), any(RScript.ReturnType.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    String lua = invocation.getArgument(1);
+                    Object[] args = new Object[invocation.getArguments().length - 4];
+                    System.arraycopy(invocation.getArguments(), 4, args, 0, args.length);
+                    calls.add(args);
+                    return lua.contains("zcard") ? acquirePermit.apply(args) : tokenBucket.apply(args);
+                });
+        limiter = new RedissonDistributeLimiter(redissonClient, 4, 30000, 60000);
+    }
+
+    @Test
+    public void testAcquireTokens() {
+        assertEquals(5L, limiter.tryAcquireTokens("search", 100, 1000, 200, 1, 5, 0));
+        assertArrayEquals(new Object[]{"100", "1000", "200", "1", "5"}, calls.get(0));
+    }
+
+    @Test
+    public void testTokensNotEnoughWithinWaitTime() {
+        // 补足令牌需要的时间超过等待时间时不等待
+        tokenBucket = args -> Arrays.asList(0L, 1000L);
+        assertEquals(0L, limiter.tryAcquireTokens("search", 1, 1000, 1, 1, 1, 100));
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void testWaitForTokens() {
+        tokenBucket = args -> calls.size() < 2 ? Arrays.asList(0L, 20L) : Arrays.asList(1L, 0L);
+        assertEquals(1L, limiter.tryAcquireTokens("search", 1, 1000, 1, 1, 1, 500));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void testRetryPermitUntilReleased() {
+        acquirePermit = args -> calls.size() < 3 ? 10L : null;
+        String permitId = limiter.tryAcquirePermit("export", 2, 30000, 1000);
+        assertEquals("node-1:1", permitId);
+        assertEquals(3, calls.size());
+        assertArrayEquals(new Object[]{"2", "30000", "node-1:1"}, calls.get(2));
+    }
+
+    @Test
+    public void testPermitsExhausted() {
+        acquirePermit = args -> 10000L;
+        assertNull(limiter.tryAcquirePermit("export", 2, 30000, 50));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReleasePermit() {
+        RScoredSortedSet<Object> permits = mock(RScoredSortedSet.class);
+        when(redissonClient.getScoredSortedSet("export", StringCodec.INSTANCE)).thenReturn(permits);
+        when(permits.remove("node-1:1")).thenReturn(true);
+        assertTrue(limiter.releasePermit("export", "node-1:1"));
+    }
+}